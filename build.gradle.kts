@@ -2,6 +2,7 @@ plugins {
     java
     id("org.springframework.boot") version "3.5.5"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com"
@@ -28,11 +29,25 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter")
     implementation("org.springframework.boot:spring-boot-starter-web")
     compileOnly("org.projectlombok:lombok")
+    // 쿼리 메트릭 (MicrometerQueryMetrics), 버전은 Spring Boot 가 관리
+    implementation("io.micrometer:micrometer-core")
     runtimeOnly("com.mysql:mysql-connector-j")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
     testAnnotationProcessor("org.projectlombok:lombok:1.18.30")
+    // 벤치마크는 MySQL 대신 MySQL 호환 모드의 H2 인메모리 DB 에서 실행
+    jmh("com.h2database:h2")
+}
+
+// ./gradlew jmh
+// 결과는 build/results/jmh/results.json, gc 프로파일러로 할당률(gc.alloc.rate.norm)도 함께 측정
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("JSON")
 }
 
 tasks.withType<Test> {
@@ -0,0 +1,115 @@
+package com.back.simpleDb;
+
+import com.back.Article;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 쿼리 왕복 + 결과 매핑 비용
+// MySQL 없이 돌릴 수 있도록 MySQL 호환 모드의 H2 인메모리 DB 를 씀
+// (네트워크 왕복이 없으므로 절대값보다는 변경 전후 비교, 할당량 비교 용도)
+// ./gradlew jmh -Pjmh.includes=SimpleDbBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimpleDbBenchmark {
+    private static final String URL = "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    // 한 번에 읽는 행 수
+    @Param({"10", "100", "1000"})
+    private int rows;
+
+    // 0 이면 문장 캐시 없이 매번 prepare
+    @Param({"0", "64"})
+    private int statementCacheSize;
+
+    private SimpleDb simpleDb;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simpleDb = new SimpleDb(URL, "sa", "");
+        simpleDb.getPool().setStatementCacheSize(statementCacheSize);
+
+        simpleDb.run("DROP TABLE IF EXISTS article");
+        simpleDb.run("""
+                CREATE TABLE article (
+                    id BIGINT NOT NULL AUTO_INCREMENT,
+                    PRIMARY KEY(id),
+                    createdDate DATETIME NOT NULL,
+                    modifiedDate DATETIME NOT NULL,
+                    title VARCHAR(100) NOT NULL,
+                    `body` TEXT NOT NULL,
+                    isBlind BOOLEAN NOT NULL DEFAULT FALSE
+                )
+                """);
+
+        Batch batch = simpleDb.batch("INSERT INTO article (createdDate, modifiedDate, title, `body`, isBlind) VALUES (NOW(), NOW(), ?, ?, ?)");
+        for (int i = 1; i <= 1000; i++) {
+            batch.add("제목" + i, "내용" + i, i % 2 == 0);
+        }
+        batch.execute();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        simpleDb.run("DROP TABLE IF EXISTS article");
+        simpleDb.close();
+    }
+
+    // 한 행 한 컬럼 조회 (왕복 비용이 대부분)
+    @Benchmark
+    public Long selectLongById() {
+        return simpleDb.genSql()
+                .append("SELECT id FROM article WHERE id = ?", 1)
+                .selectLong();
+    }
+
+    @Benchmark
+    public int update() {
+        return simpleDb.genSql()
+                .append("UPDATE article SET modifiedDate = NOW() WHERE id = ?", 1)
+                .update();
+    }
+
+    // 행마다 Map (Row) 으로 매핑
+    @Benchmark
+    public List<Map<String, Object>> selectRowsAsMap() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article ORDER BY id LIMIT ?", rows)
+                .selectRows();
+    }
+
+    // 행마다 Article 로 매핑 (RowMappers)
+    @Benchmark
+    public List<Article> selectRowsAsArticle() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article ORDER BY id LIMIT ?", rows)
+                .selectRows(Article.class);
+    }
+
+    // 컬럼 단위 저장 (행 객체 없음)
+    @Benchmark
+    public ResultTable selectTable() {
+        return simpleDb.genSql()
+                .append("SELECT * FROM article ORDER BY id LIMIT ?", rows)
+                .selectTable();
+    }
+
+    // id 목록 (List<Long>, 박싱)
+    @Benchmark
+    public List<Long> selectLongs() {
+        return simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id LIMIT ?", rows)
+                .selectLongs();
+    }
+
+    // id 목록 (long[], 박싱 없음)
+    @Benchmark
+    public long[] selectLongArray() {
+        return simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id LIMIT ?", rows)
+                .selectLongArray();
+    }
+}
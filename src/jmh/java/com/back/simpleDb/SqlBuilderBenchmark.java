@@ -0,0 +1,62 @@
+package com.back.simpleDb;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// SQL 조립 비용 (DB 없이)
+// ./gradlew jmh -Pjmh.includes=SqlBuilderBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SqlBuilderBenchmark {
+    private static final SqlTemplate FIND = SqlTemplate.of("SELECT id, title, body FROM article WHERE id = :id AND title = :title ORDER BY id DESC");
+    private static final SqlTemplate FIND_IN = SqlTemplate.of("SELECT id FROM article WHERE id IN (:ids)");
+
+    @Param({"1", "10", "100"})
+    private int inSize;
+
+    private Object[] ids;
+
+    @Setup
+    public void setUp() {
+        ids = new Object[inSize];
+        for (int i = 0; i < inSize; i++) ids[i] = (long) i + 1;
+    }
+
+    @Benchmark
+    public void append(Blackhole bh) {
+        SqlBuilder builder = new SqlBuilder()
+                .append("SELECT id, title, body")
+                .append("FROM article")
+                .append("WHERE id = ?", 1L)
+                .append("AND title = ?", "제목1")
+                .append("ORDER BY id DESC");
+        bh.consume(builder.getSql());
+        bh.consume(builder.getParams());
+    }
+
+    @Benchmark
+    public void appendIn(Blackhole bh) {
+        SqlBuilder builder = new SqlBuilder()
+                .append("SELECT id FROM article")
+                .appendIn("WHERE id IN (?)", ids);
+        bh.consume(builder.getSql());
+        bh.consume(builder.getParams());
+    }
+
+    @Benchmark
+    public void template(Blackhole bh) {
+        SqlBuilder builder = FIND.bind(1L, "제목1");
+        bh.consume(builder.getSql());
+        bh.consume(builder.getParams());
+    }
+
+    @Benchmark
+    public void templateIn(Blackhole bh) {
+        SqlBuilder builder = FIND_IN.bind((Object) ids);
+        bh.consume(builder.getSql());
+        bh.consume(builder.getParams());
+    }
+}
@@ -0,0 +1,133 @@
+package com.back.simpleDb;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 같은 SQL 을 파라미터만 바꿔서 여러 번 실행할 때 사용
+// simpleDb.batch("INSERT INTO article SET title = ?, body = ?")
+//         .add("제목1", "내용1")
+//         .add("제목2", "내용2")
+//         .execute();
+// batchSize 개씩 묶어서 executeBatch 한 번(= 왕복 한 번)으로 보냄
+// rewriteBatchedStatements=true 이면 드라이버가 INSERT 를 multi-row VALUES 로 합쳐서 보냄
+// (이 경우 행별 영향 행 수는 Statement.SUCCESS_NO_INFO(-2)로 올 수 있음)
+public class Batch {
+    private final SimpleDb simpleDb;
+    private final Transaction transaction;
+    private final String sql;
+    private final List<Object[]> rows = new ArrayList<>();
+    private int batchSize = 1000;
+    private boolean returnGeneratedKeys = false;
+
+    Batch(SimpleDb simpleDb, Transaction transaction, String sql) {
+        this.simpleDb = simpleDb;
+        this.transaction = transaction;
+        this.sql = sql;
+    }
+
+    public Batch add(Object... params) {
+        rows.add(params == null ? new Object[0] : params);
+        return this;
+    }
+
+    public Batch addAll(Iterable<Object[]> paramsList) {
+        for (Object[] params : paramsList) add(params);
+        return this;
+    }
+
+    public Batch batchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize 는 1 이상이어야 합니다.");
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public Batch returnGeneratedKeys() {
+        this.returnGeneratedKeys = true;
+        return this;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public BatchResult execute() {
+        int[] affectedCounts = new int[rows.size()];
+        long[] generatedKeys = returnGeneratedKeys ? new long[rows.size()] : new long[0];
+        if (rows.isEmpty()) return new BatchResult(affectedCounts, generatedKeys);
+
+        // 배치 전체를 쿼리 한 번으로 기록 (파라미터는 행 수가 많을 수 있어서 남기지 않음)
+        QueryTimer timer = new QueryTimer(sql, List.of());
+        Throwable error = null;
+        try {
+            execute(affectedCounts, generatedKeys, timer);
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            simpleDb.afterQuery(timer, error);
+        }
+
+        simpleDb.afterWrite(sql, null, transaction);
+        return new BatchResult(affectedCounts, generatedKeys);
+    }
+
+    private void execute(int[] affectedCounts, long[] generatedKeys, QueryTimer timer) {
+        PooledConnection pc = simpleDb.borrowConnection(transaction);
+        timer.connectionAcquired();
+        StatementCache statementCache = pc.getStatementCache();
+        int offset = 0;
+        try {
+            PreparedStatement ps = statementCache.prepare(sql, returnGeneratedKeys);
+            timer.statementPrepared(statementCache.isLastPrepareHit());
+            try {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    offset = from;
+                    int to = Math.min(from + batchSize, rows.size());
+                    executeChunk(ps, from, to, affectedCounts, generatedKeys);
+                }
+                statementCache.release(ps, sql, returnGeneratedKeys);
+            } catch (SQLException | RuntimeException e) {
+                statementCache.discard(ps, sql, returnGeneratedKeys);
+                throw e;
+            }
+        } catch (BatchUpdateException e) {
+            throw new RuntimeException("배치 실행 실패 (%d번째 행부터 시작한 묶음)".formatted(offset), e);
+        } catch (SQLException e) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("08")) pc.markBroken();
+            throw new RuntimeException(e);
+        } finally {
+            simpleDb.releaseConnection(transaction, pc);
+        }
+        timer.completed(new BatchResult(affectedCounts, generatedKeys).getTotalAffected(), null);
+    }
+
+    private void executeChunk(PreparedStatement ps, int from, int to, int[] affectedCounts, long[] generatedKeys) throws SQLException {
+        for (int i = from; i < to; i++) {
+            simpleDb.getParamBinders().bind(ps, sql, rows.get(i));
+            ps.addBatch();
+        }
+
+        int[] counts = ps.executeBatch();
+        System.arraycopy(counts, 0, affectedCounts, from, Math.min(counts.length, to - from));
+
+        if (!returnGeneratedKeys) return;
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            int i = from;
+            while (rs.next() && i < to) {
+                generatedKeys[i++] = rs.getLong(1);
+            }
+        }
+    }
+
+    public record BatchResult(int[] affectedCounts, long[] generatedKeys) {
+        // SUCCESS_NO_INFO(-2) 는 합계에서 제외
+        public long getTotalAffected() {
+            return Arrays.stream(affectedCounts).filter(c -> c > 0).asLongStream().sum();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.back.simpleDb;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 여러 행을 INSERT ... VALUES (...), (...) 한 문장으로 넣음
+// long[] ids = simpleDb.insertInto("article")
+//         .columns("createdDate", "modifiedDate", "title", "body")
+//         .values(now, now, "제목1", "내용1")
+//         .values(now, now, "제목2", "내용2")
+//         .execute();
+// - 행이 많으면 문장 하나가 maxStatementBytes(max_allowed_packet 보다 작게), maxRowsPerStatement 를 넘지 않도록 나눠서 실행
+// - 돌려주는 id 는 넣은 행 순서대로 (AUTO_INCREMENT 컬럼이 없는 등 키를 받지 못한 행은 0)
+// - onDuplicateKeyUpdate("title", ...) 로 upsert, 이때는 id 를 돌려주지 않음 (모두 0)
+//   Connector/J 는 첫 id 와 영향 행 수로 id 를 이어서 만들어내는데, 수정된 행은 2 로 세므로 그 뒤 행의 id 가 틀리거나 다른 행의 id 가 됨
+// 트랜잭션 밖에서 여러 문장으로 나뉘면 문장마다 따로 커밋됨
+public class BulkInsert {
+    // MySQL 자리표시자 최대 개수
+    private static final int MAX_PLACEHOLDERS = 65_535;
+
+    private final SimpleDb simpleDb;
+    private final Transaction transaction;
+    private final String table;
+    private final List<Object[]> rows = new ArrayList<>();
+    private String[] columns;
+    private String[] updateColumns = new String[0];
+    private int maxRowsPerStatement = 1_000;
+    // 5.7 의 max_allowed_packet 기본값(4MB)보다 충분히 작게
+    private long maxStatementBytes = 1024 * 1024;
+
+    BulkInsert(SimpleDb simpleDb, Transaction transaction, String table) {
+        this.simpleDb = simpleDb;
+        this.transaction = transaction;
+        this.table = table;
+    }
+
+    public BulkInsert columns(String... columns) {
+        if (columns == null || columns.length == 0) throw new IllegalArgumentException("컬럼이 비어있습니다.");
+        if (!rows.isEmpty()) throw new IllegalStateException("columns 는 values 보다 먼저 지정해야 합니다.");
+        this.columns = columns.clone();
+        return this;
+    }
+
+    public BulkInsert values(Object... row) {
+        if (columns == null) throw new IllegalStateException("columns 를 먼저 지정해야 합니다.");
+        if (row == null || row.length != columns.length)
+            throw new IllegalArgumentException("값 개수가 컬럼 개수(%d)와 다릅니다.".formatted(columns.length));
+        rows.add(row);
+        return this;
+    }
+
+    public BulkInsert addAll(Iterable<Object[]> rows) {
+        for (Object[] row : rows) values(row);
+        return this;
+    }
+
+    // 중복 키면 이 컬럼들을 새 값으로 바꿈 (col = VALUES(col))
+    public BulkInsert onDuplicateKeyUpdate(String... columns) {
+        this.updateColumns = columns.clone();
+        return this;
+    }
+
+    public BulkInsert maxRowsPerStatement(int maxRowsPerStatement) {
+        if (maxRowsPerStatement <= 0) throw new IllegalArgumentException("maxRowsPerStatement 는 1 이상이어야 합니다.");
+        this.maxRowsPerStatement = maxRowsPerStatement;
+        return this;
+    }
+
+    public BulkInsert maxStatementBytes(long maxStatementBytes) {
+        if (maxStatementBytes <= 0) throw new IllegalArgumentException("maxStatementBytes 는 1 이상이어야 합니다.");
+        this.maxStatementBytes = maxStatementBytes;
+        return this;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public long[] execute() {
+        if (rows.isEmpty()) return new long[0];
+
+        String prefix = prefix();
+        String suffix = suffix();
+        int rowLimit = Math.min(maxRowsPerStatement, MAX_PLACEHOLDERS / columns.length);
+        long[] ids = new long[rows.size()];
+
+        PooledConnection pc = simpleDb.borrowConnection(transaction);
+        try {
+            int from = 0;
+            while (from < rows.size()) {
+                int to = chunkEnd(from, rowLimit, prefix.length() + suffix.length());
+                executeChunk(pc, prefix, suffix, from, to, ids);
+                from = to;
+            }
+        } finally {
+            simpleDb.releaseConnection(transaction, pc);
+        }
+
+        simpleDb.afterWrite(prefix + suffix, null, transaction);
+        return ids;
+    }
+
+    // from 부터 rowLimit 개, 또는 문장 크기가 maxStatementBytes 를 넘기 직전까지 (최소 한 행)
+    private int chunkEnd(int from, int rowLimit, long fixedBytes) {
+        long bytes = fixedBytes;
+        int to = from;
+        while (to < rows.size() && to - from < rowLimit) {
+            long rowBytes = estimateBytes(rows.get(to));
+            if (to > from && bytes + rowBytes > maxStatementBytes) break;
+            bytes += rowBytes;
+            to++;
+        }
+        return to;
+    }
+
+    private void executeChunk(PooledConnection pc, String prefix, String suffix, int from, int to, long[] ids) {
+        String sql = sql(prefix, suffix, to - from);
+        // upsert 면 생성 키를 믿을 수 없으므로 받지 않음
+        boolean returnGeneratedKeys = updateColumns.length == 0;
+        List<Object> params = new ArrayList<>((to - from) * columns.length);
+        for (int i = from; i < to; i++) params.addAll(Arrays.asList(rows.get(i)));
+
+        QueryTimer timer = new QueryTimer(sql, params);
+        timer.connectionAcquired();
+        StatementCache statementCache = pc.getStatementCache();
+        Throwable error = null;
+        try {
+            PreparedStatement ps = statementCache.prepare(sql, returnGeneratedKeys);
+            timer.statementPrepared(statementCache.isLastPrepareHit());
+            try {
+                simpleDb.getParamBinders().bind(ps, sql, params);
+                int affected = ps.executeUpdate();
+                if (returnGeneratedKeys) {
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        int i = from;
+                        while (rs.next() && i < to) {
+                            ids[i++] = rs.getLong(1);
+                        }
+                    }
+                }
+                timer.completed(affected, null);
+                statementCache.release(ps, sql, returnGeneratedKeys);
+            } catch (SQLException | RuntimeException e) {
+                statementCache.discard(ps, sql, returnGeneratedKeys);
+                throw e;
+            }
+        } catch (SQLException e) {
+            if (e.getSQLState() != null && e.getSQLState().startsWith("08")) pc.markBroken();
+            RuntimeException wrapped = new RuntimeException("대량 INSERT 실패 (%d번째 행부터 시작한 묶음)".formatted(from), e);
+            error = wrapped;
+            throw wrapped;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            simpleDb.afterQuery(timer, error);
+        }
+    }
+
+    private String prefix() {
+        StringBuilder sb = new StringBuilder("INSERT INTO ").append(quote(table)).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(quote(columns[i]));
+        }
+        return sb.append(") VALUES ").toString();
+    }
+
+    private String suffix() {
+        if (updateColumns.length == 0) return "";
+        StringBuilder sb = new StringBuilder(" ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < updateColumns.length; i++) {
+            if (i > 0) sb.append(", ");
+            String column = quote(updateColumns[i]);
+            sb.append(column).append(" = VALUES(").append(column).append(")");
+        }
+        return sb.toString();
+    }
+
+    private String sql(String prefix, String suffix, int rowCount) {
+        String row = "(" + SqlBuilder.placeholders(columns.length) + ")";
+        StringBuilder sb = new StringBuilder(prefix.length() + suffix.length() + rowCount * (row.length() + 2));
+        sb.append(prefix);
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(row);
+        }
+        return sb.append(suffix).toString();
+    }
+
+    // 드라이버가 값을 문장에 채워서 보낼 때의 대략적인 크기 (자리표시자, 구분자 포함)
+    private static long estimateBytes(Object[] row) {
+        long bytes = 4;
+        for (Object value : row) {
+            bytes += 3;
+            if (value == null) bytes += 4;
+            else if (value instanceof CharSequence s) bytes += 3L * s.length() + 2;
+            else if (value instanceof byte[] b) bytes += 2L * b.length + 3;
+            else bytes += 32;
+        }
+        return bytes;
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
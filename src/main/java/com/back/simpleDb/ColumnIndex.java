@@ -0,0 +1,67 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 결과셋 하나의 컬럼 라벨 → 위치 인덱스
+// 결과셋마다 한 번 만들어서 모든 Row 가 공유함
+// 라벨이 중복되면 LinkedHashMap 에 put 하던 기존 동작과 같게 위치는 처음 것, 값은 마지막 컬럼 것을 사용
+public final class ColumnIndex {
+    private final String[] labels;
+    private final int[] columnNumbers;
+    private final Map<String, Integer> positions;
+
+    private ColumnIndex(String[] labels, int[] columnNumbers, Map<String, Integer> positions) {
+        this.labels = labels;
+        this.columnNumbers = columnNumbers;
+        this.positions = positions;
+    }
+
+    static ColumnIndex of(ResultSetMetaData meta) throws SQLException {
+        int colCount = meta.getColumnCount();
+        List<String> labels = new ArrayList<>(colCount);
+        List<Integer> columnNumbers = new ArrayList<>(colCount);
+        Map<String, Integer> positions = new HashMap<>(colCount * 2);
+
+        for (int i = 1; i <= colCount; i++) {
+            String label = meta.getColumnLabel(i);
+            Integer position = positions.get(label);
+            if (position == null) {
+                positions.put(label, labels.size());
+                labels.add(label);
+                columnNumbers.add(i);
+            } else {
+                columnNumbers.set(position, i);
+            }
+        }
+
+        return new ColumnIndex(
+                labels.toArray(String[]::new),
+                columnNumbers.stream().mapToInt(Integer::intValue).toArray(),
+                positions
+        );
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    public String label(int position) {
+        return labels[position];
+    }
+
+    // 없는 라벨이면 -1
+    public int indexOf(Object label) {
+        Integer position = positions.get(label);
+        return position == null ? -1 : position;
+    }
+
+    // position 번째 라벨의 값을 읽을 JDBC 컬럼 번호 (1부터)
+    int columnNumber(int position) {
+        return columnNumbers[position];
+    }
+}
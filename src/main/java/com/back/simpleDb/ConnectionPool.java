@@ -0,0 +1,387 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 크기가 제한된 커넥션 풀
+// 쿼리 실행(또는 트랜잭션) 단위로 빌려주고 돌려받기 때문에 커넥션 수는 스레드 수가 아니라 동시성에 비례함
+// 설정값은 첫 대여 전에 바꾸는 것을 전제로 함
+@Slf4j
+public class ConnectionPool implements AutoCloseable {
+    @Getter
+    private final String url;
+    @Getter
+    private final String username;
+    // user, password 외에 드라이버에 넘길 속성 (useServerPrepStmts 등)
+    private final Properties jdbcProperties = new Properties();
+
+    @Getter
+    @Setter
+    private int minIdle = 2;
+    @Getter
+    @Setter
+    private int maxSize = 10;
+    @Getter
+    @Setter
+    private long borrowTimeoutMillis = 30_000;
+    @Getter
+    @Setter
+    private long idleTimeoutMillis = 600_000;
+    // 이 시간보다 오래 놀았던 커넥션만 대여 시 isValid 로 검사함 (매번 검사하면 왕복이 하나 더 생김)
+    @Getter
+    @Setter
+    private long validateAfterIdleMillis = 500;
+    @Getter
+    @Setter
+    private int validationTimeoutSeconds = 2;
+    // 0 이면 누수 감지 안 함
+    @Getter
+    @Setter
+    private long leakDetectionThresholdMillis = 0;
+    @Getter
+    @Setter
+    private long housekeepingPeriodMillis = 30_000;
+    // 커넥션당 캐시할 PreparedStatement 개수, 0 이면 매번 prepare 후 닫음
+    @Getter
+    @Setter
+    private int statementCacheSize = 64;
+    @Getter
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+
+    // 대여 자리(permit) 를 공정(FIFO) 세마포어로 나눠줌 → 기다리는 스레드는 온 순서대로 커넥션을 받음
+    // 가상 스레드도 세마포어에서 파킹되므로 캐리어 스레드를 붙잡지 않음
+    // 내부 자료구조는 짧게만 ReentrantLock 으로 보호 (synchronized 는 JDK 21 가상 스레드를 캐리어에 고정시킴)
+    private volatile Semaphore permits;
+    private final ReentrantLock lock = new ReentrantLock();
+    // 최근에 반납된 커넥션부터 꺼내 씀 (LIFO) → 오래 안 쓰인 커넥션이 자연스럽게 정리됨
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = new HashSet<>();
+    // 유휴 + 대여중 + 생성중
+    private int total;
+    private volatile boolean closed;
+    private volatile ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        jdbcProperties.setProperty("user", username);
+        jdbcProperties.setProperty("password", password);
+    }
+
+    // 예: setJdbcProperty("useServerPrepStmts", "true")
+    // 서버쪽 prepare 를 켜면 statement 캐시가 서버 핸들까지 재사용하게 됨
+    public void setJdbcProperty(String key, String value) {
+        jdbcProperties.setProperty(key, value);
+    }
+
+    public String getJdbcProperty(String key) {
+        return jdbcProperties.getProperty(key);
+    }
+
+    PooledConnection borrow() {
+        return borrow(TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis));
+    }
+
+    // permit 을 하나 잡으면 유휴 커넥션이 있거나 새로 만들 자리가 반드시 있음
+    PooledConnection borrow(long timeoutNanos) {
+        Semaphore permits = startIfNeeded();
+        acquire(permits, timeoutNanos);
+
+        while (true) {
+            PooledConnection pc;
+            lock.lock();
+            try {
+                if (closed) {
+                    permits.release();
+                    throw new IllegalStateException("커넥션 풀이 이미 닫혔습니다.");
+                }
+                pc = idle.pollFirst();
+                if (pc == null) total++;
+            } finally {
+                lock.unlock();
+            }
+
+            if (pc == null) {
+                try {
+                    pc = create();
+                } catch (RuntimeException e) {
+                    decrementTotal();
+                    permits.release();
+                    throw e;
+                }
+            } else if (!validate(pc)) {
+                destroy(pc);
+                continue;
+            }
+
+            pc.markBorrowed(leakDetectionThresholdMillis > 0 ? new Throwable("커넥션 대여 위치") : null);
+            lock.lock();
+            try {
+                borrowed.add(pc);
+            } finally {
+                lock.unlock();
+            }
+            return pc;
+        }
+    }
+
+    void release(PooledConnection pc) {
+        try {
+            if (pc.isBroken() || closed) {
+                destroy(pc);
+                return;
+            }
+
+            pc.markReturned();
+            lock.lock();
+            try {
+                borrowed.remove(pc);
+                idle.addFirst(pc);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return borrowed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaitingBorrowers() {
+        Semaphore permits = this.permits;
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            total -= toClose.size();
+        } finally {
+            lock.unlock();
+        }
+
+        // 세마포어에서 기다리는 대여자를 모두 깨움 → permit 을 받은 뒤 closed 를 보고 "이미 닫혔습니다" 로 실패
+        // (대여 시간 초과까지 기다리지 않도록, 닫힌 뒤에 들어온 대여자도 바로 permit 을 받음)
+        Semaphore permits = this.permits;
+        if (permits != null) permits.release(Integer.MAX_VALUE / 2);
+
+        if (housekeeper != null) housekeeper.shutdownNow();
+        // 대여중인 커넥션은 반납될 때 닫힘
+        toClose.forEach(PooledConnection::closeQuietly);
+    }
+
+    private void acquire(Semaphore permits, long timeoutNanos) {
+        try {
+            if (!permits.tryAcquire(Math.max(timeoutNanos, 0), TimeUnit.NANOSECONDS))
+                throw new RuntimeException("커넥션 대여 시간 초과 (%dms, 최대 %d개 사용중)".formatted(TimeUnit.NANOSECONDS.toMillis(timeoutNanos), maxSize));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("커넥션 대기 중 인터럽트", e);
+        }
+        if (closed) {
+            permits.release();
+            throw new IllegalStateException("커넥션 풀이 이미 닫혔습니다.");
+        }
+    }
+
+    // 호출 전에 total 로 자리를 예약해 두어야 함 (실패하면 호출한 쪽에서 되돌림)
+    private PooledConnection create() {
+        try {
+            Connection con = DriverManager.getConnection(url, jdbcProperties);
+            return new PooledConnection(this, con, statementCacheSize, statementCacheStats);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean validate(PooledConnection pc) {
+        long idleNanos = System.nanoTime() - pc.getLastUsedAt();
+        if (idleNanos < TimeUnit.MILLISECONDS.toNanos(validateAfterIdleMillis)) return true;
+        try {
+            return pc.getConnection().isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // permit 은 건드리지 않음
+    private void destroy(PooledConnection pc) {
+        lock.lock();
+        try {
+            borrowed.remove(pc);
+            idle.remove(pc);
+            total--;
+        } finally {
+            lock.unlock();
+        }
+        pc.closeQuietly();
+    }
+
+    private void decrementTotal() {
+        lock.lock();
+        try {
+            total--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 설정값(maxSize 등)은 첫 대여 시점에 고정됨
+    private Semaphore startIfNeeded() {
+        Semaphore current = permits;
+        if (current != null) return current;
+        lock.lock();
+        try {
+            if (permits != null) return permits;
+            if (closed) throw new IllegalStateException("커넥션 풀이 이미 닫혔습니다.");
+            housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "simpleDb-pool-housekeeper");
+                t.setDaemon(true);
+                return t;
+            });
+            housekeeper.scheduleWithFixedDelay(this::housekeep, housekeepingPeriodMillis, housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+            permits = new Semaphore(maxSize, true);
+            return permits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 주기적으로 오래 놀고 있는 커넥션 정리, 누수 의심 커넥션 로그, 최소 유휴 개수 채우기
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+            fillMinIdle();
+        } catch (RuntimeException e) {
+            log.warn("커넥션 풀 정리 작업 실패", e);
+        }
+    }
+
+    private void evictIdle() {
+        List<PooledConnection> evicted = new ArrayList<>();
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        lock.lock();
+        try {
+            // 가장 오래 놀았던 커넥션이 덱의 뒤쪽에 있음
+            while (idle.size() > minIdle) {
+                PooledConnection oldest = idle.peekLast();
+                if (now - oldest.getLastUsedAt() < idleTimeoutNanos) break;
+                idle.pollLast();
+                total--;
+                evicted.add(oldest);
+            }
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(PooledConnection::closeQuietly);
+    }
+
+    private void detectLeaks() {
+        if (leakDetectionThresholdMillis <= 0) return;
+        long now = System.nanoTime();
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakDetectionThresholdMillis);
+
+        List<PooledConnection> suspects = new ArrayList<>();
+        lock.lock();
+        try {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.isLeakReported() && now - pc.getBorrowedAt() > thresholdNanos) suspects.add(pc);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : suspects) {
+            pc.markLeakReported();
+            log.warn("커넥션이 {}ms 넘게 반납되지 않았습니다. 누수가 의심됩니다.", leakDetectionThresholdMillis, pc.getBorrowTrace());
+        }
+    }
+
+    // 채우는 동안에도 permit 을 잡아서 대여자 몫의 자리를 뺏지 않음
+    private void fillMinIdle() {
+        Semaphore permits = this.permits;
+        while (permits.tryAcquire()) {
+            try {
+                lock.lock();
+                try {
+                    if (closed || idle.size() >= minIdle || total >= maxSize) return;
+                    total++;
+                } finally {
+                    lock.unlock();
+                }
+
+                PooledConnection pc;
+                try {
+                    pc = create();
+                } catch (RuntimeException e) {
+                    decrementTotal();
+                    throw e;
+                }
+
+                lock.lock();
+                try {
+                    if (!closed) {
+                        idle.addLast(pc);
+                        continue;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                destroy(pc);
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
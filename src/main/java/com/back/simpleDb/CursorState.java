@@ -0,0 +1,12 @@
+package com.back.simpleDb;
+
+// 스트리밍 결과셋을 읽는 동안의 상태 (스트림을 닫을 때 QueryTimer 와 afterQuery 에 넘김)
+final class CursorState {
+    long rowCount;
+    // 읽는 중에 난 드라이버/매핑 오류 (처음 것만)
+    Throwable error;
+
+    void failed(Throwable e) {
+        if (error == null) error = e;
+    }
+}
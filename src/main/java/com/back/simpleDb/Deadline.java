@@ -0,0 +1,90 @@
+package com.back.simpleDb;
+
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// 쿼리가 끝나야 하는 시각 (System.nanoTime 기준)
+// 웹 요청 단위로 만들어서 현재 스레드에 걸어두면 그 안에서 만든 Sql 이 모두 같은 기한을 씀
+// try (Deadline.Scope scope = Deadline.after(Duration.ofSeconds(2)).bind()) {
+//     simpleDb.genSql().append(...).selectRows();
+// }
+// - Sql 은 만들어질 때의 기한을 들고 다니므로 xxxAsync 로 다른 스레드에서 실행해도 같은 기한이 적용됨
+// - 커넥션 대여 대기 시간도 기한 안에 포함됨
+// - 기한이 지나면 실행중인 쿼리를 Statement.cancel() 로 취소하고 SQLTimeoutException 을 (RuntimeException 으로 감싸서) 던짐
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    // 현재 스레드에 걸린 기한, 없으면 null
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    // 현재 스레드에 걸고, Scope 를 닫으면 이전 기한으로 되돌림
+    public Scope bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return new Scope(previous);
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public Duration getRemaining() {
+        return Duration.ofNanos(Math.max(remainingNanos(), 0));
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    // 둘 중 먼저 오는 기한 (null 은 기한 없음)
+    static Deadline earliest(Deadline a, Deadline b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.deadlineNanos - b.deadlineNanos <= 0 ? a : b;
+    }
+
+    // 기한 초과로 실패한 쿼리의 예외
+    static RuntimeException timeoutError(Throwable cause) {
+        return new RuntimeException(new SQLTimeoutException("쿼리 기한이 지났습니다.", "HY008", cause));
+    }
+
+    // 예외(원인 포함)가 시간 초과인지 (드라이버의 setQueryTimeout 초과도 포함)
+    static boolean isTimeout(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof SQLTimeoutException) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline(%dms 남음)".formatted(TimeUnit.NANOSECONDS.toMillis(remainingNanos()));
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Deadline previous;
+
+        private Scope(Deadline previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// (클래스, id) 단위 엔티티 캐시 (프로세스 내부)
+// EntityCache entityCache = new EntityCache().register(Article.class, "article");
+// simpleDb.setEntityCache(entityCache);
+// simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(Article.class); // 두 번째부터는 DB 에 가지 않음
+// - 등록한 클래스를 SELECT * FROM 테이블 WHERE id컬럼 = ? 로 selectRow(Class) 할 때만 캐시를 거침 (트랜잭션 밖에서만)
+// - update/delete 가 WHERE id컬럼 = ? 또는 WHERE id컬럼 IN (...) 이면 그 id 만, 그 밖의 조건이면 테이블 전체를 지움
+//   트랜잭션 안의 쓰기는 커밋 때 한 번 더 지움 (커밋 전에 다른 곳에서 옛 값을 다시 캐시할 수 있으므로)
+// - 용량(maxSize)과 TTL 로 제한하고, 넘치면 가장 오래 안 쓰인 것부터 버림
+// - 키 해시로 나눈 구간(segment)마다 따로 잠그므로 여러 스레드가 동시에 읽어도 한 잠금에 몰리지 않음
+// 없는 행(null)은 캐시하지 않음, 캐시된 객체는 여러 호출자가 같이 보므로 수정하면 안 됨
+public class EntityCache {
+    private static final int SEGMENTS = 16;
+    private static final Pattern INSERT = Pattern.compile("^\\s*(?:INSERT|REPLACE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern UPSERT = Pattern.compile("^\\s*REPLACE\\b|\\bON\\s+DUPLICATE\\s+KEY\\s+UPDATE\\b", Pattern.CASE_INSENSITIVE);
+
+    // 전체 항목 수 (구간마다 maxSize / 16 개씩)
+    @Getter
+    @Setter
+    private int maxSize = 10_000;
+    @Getter
+    @Setter
+    private Duration ttl = Duration.ofMinutes(5);
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Map<Class<?>, Mapping> mappings = new ConcurrentHashMap<>();
+    private final Map<String, List<Mapping>> mappingsByTable = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public EntityCache() {
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment();
+    }
+
+    // id 컬럼은 id
+    public EntityCache register(Class<?> type, String table) {
+        return register(type, table, "id");
+    }
+
+    // 한 테이블에 여러 클래스를 등록할 수 있지만 id 컬럼은 같아야 함 (쓰기 SQL 의 id 로 테이블의 모든 클래스를 지우므로)
+    public EntityCache register(Class<?> type, String table, String idColumn) {
+        Mapping mapping = new Mapping(type, table.toLowerCase(Locale.ROOT), idColumn);
+        mappingsByTable.compute(mapping.table(), (t, list) -> {
+            if (list == null) return List.of(mapping);
+            List<Mapping> others = list.stream().filter(m -> m.type() != type).toList();
+            if (others.stream().anyMatch(m -> !m.idColumn().equalsIgnoreCase(idColumn)))
+                throw new IllegalArgumentException("%s 테이블에 이미 다른 id 컬럼(%s)으로 등록된 클래스가 있습니다.".formatted(t, others.get(0).idColumn()));
+            return Stream.concat(others.stream(), Stream.of(mapping)).toList();
+        });
+        mappings.put(type, mapping);
+        return this;
+    }
+
+    // sql 이 type 의 id 조회이면 그 id, 아니면 null
+    Object lookupId(Class<?> type, String sql, List<Object> params) {
+        Mapping mapping = mappings.get(type);
+        if (mapping == null || params.size() != 1 || params.get(0) == null) return null;
+        return mapping.lookup().matcher(SqlTables.normalize(sql)).matches() ? params.get(0) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(Class<T> type, Object id, Supplier<T> loader) {
+        Key key = new Key(type, normalizeId(id));
+        Segment segment = segmentFor(key);
+        long now = System.nanoTime();
+
+        segment.lock.lock();
+        try {
+            Entry entry = segment.entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - now > 0) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                segment.entries.remove(key);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+
+        misses.increment();
+        // 적재 중에 지워지면 옛 값을 넣지 않도록 구간의 세대 번호로 확인
+        long generation = segment.generation();
+        T value = loader.get();
+        if (value != null) segment.put(key, new Entry(value, now + ttl.toNanos()), generation);
+        return value;
+    }
+
+    // 쓰기 SQL 로 지울 범위를 정함, 지울 것이 없으면 null
+    // params 가 null 이면 (배치처럼 행이 여러 개면) id 를 보지 않고 테이블 전체
+    Invalidation invalidationFor(String sql, List<Object> params) {
+        String table = SqlTables.writtenTable(sql);
+        if (table == null) return Invalidation.ALL;
+        List<Mapping> tableMappings = mappingsByTable.get(table);
+        if (tableMappings == null) return null;
+
+        String normalizedSql = SqlTables.normalize(sql);
+        // 새 행은 캐시에 있을 수 없음 (upsert 는 기존 행을 바꾸므로 제외)
+        if (INSERT.matcher(normalizedSql).find() && !UPSERT.matcher(normalizedSql).find()) return null;
+        if (params == null) return new Invalidation(table, null);
+
+        // 같은 테이블의 매핑은 id 컬럼이 모두 같음 (register 참고)
+        Mapping mapping = tableMappings.get(0);
+        Matcher matcher = mapping.byId().matcher(normalizedSql);
+        if (!matcher.find()) return new Invalidation(table, null);
+        // WHERE id = ? 는 자리표시자 1개, WHERE id IN (?, ?, ...) 는 목록 전체가 마지막 파라미터들
+        int count = matcher.group(1) == null ? 1 : matcher.group(1).split(",").length;
+        if (count > params.size()) return new Invalidation(table, null);
+        return new Invalidation(table, List.copyOf(params.subList(params.size() - count, params.size())));
+    }
+
+    void invalidate(Invalidation invalidation) {
+        if (invalidation == Invalidation.ALL) {
+            invalidateAll();
+            return;
+        }
+        List<Mapping> tableMappings = mappingsByTable.get(invalidation.table());
+        if (tableMappings == null) return;
+
+        if (invalidation.ids() == null) {
+            for (Segment segment : segments) {
+                segment.removeIf(key -> tableMappings.stream().anyMatch(m -> m.type() == key.type()));
+            }
+            return;
+        }
+        for (Mapping mapping : tableMappings) {
+            for (Object id : invalidation.ids()) {
+                if (id == null) continue;
+                Key key = new Key(mapping.type(), normalizeId(id));
+                segmentFor(key).remove(key);
+            }
+        }
+    }
+
+    public void invalidate(Class<?> type, Object id) {
+        Key key = new Key(type, normalizeId(id));
+        segmentFor(key).remove(key);
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) segment.removeIf(key -> true);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public double getHitRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    // 1 과 1L 이 같은 키가 되도록 정수 id 는 Long 으로 맞춤
+    private static Object normalizeId(Object id) {
+        if (id instanceof Integer || id instanceof Short || id instanceof Byte) return ((Number) id).longValue();
+        return id;
+    }
+
+    private class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+        // 지울 때마다 증가
+        private long generation;
+
+        private long generation() {
+            lock.lock();
+            try {
+                return generation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void put(Key key, Entry entry, long loadedGeneration) {
+            int capacity = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+            lock.lock();
+            try {
+                if (generation != loadedGeneration) return;
+                entries.put(key, entry);
+
+                Iterator<Entry> eldest = entries.values().iterator();
+                while (entries.size() > capacity && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void remove(Key key) {
+            lock.lock();
+            try {
+                generation++;
+                if (entries.remove(key) != null) invalidations.increment();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void removeIf(Predicate<Key> filter) {
+            lock.lock();
+            try {
+                generation++;
+                Iterator<Key> keys = entries.keySet().iterator();
+                while (keys.hasNext()) {
+                    if (!filter.test(keys.next())) continue;
+                    keys.remove();
+                    invalidations.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int size() {
+            lock.lock();
+            try {
+                return entries.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // lookup: SELECT * FROM table WHERE id = ? (LIMIT 1)
+    // byId: 쓰기 SQL 끝의 WHERE id = ? 또는 WHERE id IN (?, ...)
+    private record Mapping(Class<?> type, String table, String idColumn, Pattern lookup, Pattern byId) {
+        Mapping(Class<?> type, String table, String idColumn) {
+            this(type, table, idColumn,
+                    Pattern.compile("SELECT \\* FROM `?" + Pattern.quote(table) + "`? WHERE `?" + Pattern.quote(idColumn) + "`? ?= ?\\?(?: LIMIT 1)?;?",
+                            Pattern.CASE_INSENSITIVE),
+                    Pattern.compile("\\bWHERE `?" + Pattern.quote(idColumn) + "`? ?(?:= ?\\?|IN ?\\(((?:\\? ?, ?)*\\?)\\))(?: LIMIT \\d+)?;?$",
+                            Pattern.CASE_INSENSITIVE));
+        }
+    }
+
+    private record Key(Class<?> type, Object id) {
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+
+    // table 이 null 이면 전부, ids 가 null 이면 테이블 전체
+    record Invalidation(String table, List<Object> ids) {
+        static final Invalidation ALL = new Invalidation(null, null);
+    }
+}
@@ -0,0 +1,107 @@
+package com.back.simpleDb;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// 키 컬럼 기준 페이지 조회 (Sql.pages 로 만듦)
+// 다음 페이지는 OFFSET 대신 WHERE key > 마지막 키 ORDER BY key LIMIT n 으로 읽으므로 몇 번째 페이지든 비용이 같음
+// for (List<Map<String, Object>> page : sql.pages("id", 1000)) { ... }
+// sql.pages(Article.class, "id", 1000).prefetch().rows().forEach(article -> ...);
+// 페이지는 iterator 로 돌 때 한 장씩 읽고, prefetch() 하면 현재 페이지를 처리하는 동안 다음 페이지를 QueryExecutor 에서 미리 읽음
+public class KeysetPages<T> implements Iterable<List<T>> {
+    private final PageFetcher<T> fetcher;
+    private final int pageSize;
+    // 트랜잭션 안이면 null (트랜잭션 커넥션은 한 번에 한 스레드만 써야 하므로 미리 읽기 불가)
+    private final QueryExecutor executor;
+    private boolean prefetch;
+
+    KeysetPages(PageFetcher<T> fetcher, int pageSize, QueryExecutor executor) {
+        this.fetcher = fetcher;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    public KeysetPages<T> prefetch() {
+        if (executor == null) throw new IllegalStateException("트랜잭션 안에서는 다음 페이지를 미리 읽을 수 없습니다.");
+        this.prefetch = true;
+        return this;
+    }
+
+    @Override
+    public Iterator<List<T>> iterator() {
+        return new PageIterator();
+    }
+
+    public Stream<List<T>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // 페이지를 펼친 행 단위 스트림
+    public Stream<T> rows() {
+        return stream().flatMap(List::stream);
+    }
+
+    private class PageIterator implements Iterator<List<T>> {
+        private Object lastKey;
+        private boolean done;
+        private List<T> nextPage;
+        private CompletableFuture<Page<T>> pending;
+
+        @Override
+        public boolean hasNext() {
+            if (nextPage != null) return true;
+            if (done) return false;
+
+            Page<T> page = pending != null ? join(pending) : fetcher.fetch(lastKey);
+            pending = null;
+            if (page.rows().isEmpty()) {
+                done = true;
+                return false;
+            }
+
+            nextPage = page.rows();
+            lastKey = page.lastKey();
+            // 덜 찬 페이지면 마지막 페이지
+            if (page.rows().size() < pageSize) {
+                done = true;
+            } else if (prefetch) {
+                Object key = lastKey;
+                pending = executor.supply(() -> fetcher.fetch(key));
+            }
+            return true;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            List<T> page = nextPage;
+            nextPage = null;
+            return page;
+        }
+
+        private Page<T> join(CompletableFuture<Page<T>> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                throw e;
+            }
+        }
+    }
+
+    // lastKey 가 null 이면 첫 페이지
+    @FunctionalInterface
+    interface PageFetcher<T> {
+        Page<T> fetch(Object lastKey);
+    }
+
+    record Page<T>(List<T> rows, Object lastKey) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.back.simpleDb;
+
+// 필요할 때 읽는 컬럼 값 (큰 TEXT/BLOB 컬럼용)
+// public record ArticleListItem(Long id, String title, Lazy<String> body) { }
+// List<ArticleListItem> items = simpleDb.genSql()
+//         .append("SELECT * FROM article ORDER BY id DESC LIMIT 20")
+//         .project(ArticleListItem.class) // SELECT id, title FROM ... (Lazy 프로퍼티 컬럼은 빼고 읽음)
+//         .selectRows(ArticleListItem.class);
+// items.get(0).body().get(); // 이때 SELECT id, body FROM article WHERE id IN (...) 로 같은 결과의 body 를 한 번에 읽음
+// - 결과에 컬럼이 있으면 (project 없이 SELECT * 로 읽었으면) 그 값을 그대로 들고 있음
+// - 없으면 같은 조회 결과의 id 로 나중에 다시 읽음 (LazyLoader 참고), 조회한 테이블이 하나이고 결과에 id 컬럼이 있어야 함
+// - 나중에 읽을 때는 get() 을 부른 스레드의 트랜잭션 (없으면 트랜잭션 밖) 에서 읽음
+public final class Lazy<T> {
+    private final String column;
+    private final Object id;
+    // null 이면 다시 읽을 수 없음
+    private final Loader loader;
+    private volatile boolean loaded;
+    private T value;
+
+    private Lazy(String column, Object id, Loader loader) {
+        this.column = column;
+        this.id = id;
+        this.loader = loader;
+    }
+
+    public static <T> Lazy<T> of(T value) {
+        Lazy<T> lazy = new Lazy<>(null, null, null);
+        lazy.set(value);
+        return lazy;
+    }
+
+    static <T> Lazy<T> deferred(String column, Object id, Loader loader) {
+        return new Lazy<>(column, id, loader);
+    }
+
+    // 다시 읽을 방법이 없는 값 (get() 하면 예외)
+    static <T> Lazy<T> unavailable(String column) {
+        return new Lazy<>(column, null, null);
+    }
+
+    public T get() {
+        if (!loaded) {
+            if (loader == null)
+                throw new IllegalStateException("지연 컬럼 %s 를 읽을 수 없습니다. (결과에 id 컬럼이 없거나 조회한 테이블을 알 수 없음)".formatted(column));
+            loader.load(this);
+        }
+        return value;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    Object id() {
+        return id;
+    }
+
+    void set(T value) {
+        this.value = value;
+        this.loaded = true;
+    }
+
+    @Override
+    public String toString() {
+        return loaded ? "Lazy[" + value + "]" : "Lazy[" + column + " 읽기 전]";
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        // 끝나면 lazy 가 loaded 상태여야 함
+        void load(Lazy<?> lazy);
+    }
+}
@@ -0,0 +1,108 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Lazy 프로퍼티를 나중에 id 로 다시 읽어옴 (Sql 의 타입 매핑 조회 한 번에 하나)
+// 처음 get() 한 Lazy 가 아직 읽지 않은 같은 컬럼의 Lazy 들을 모아서
+// SELECT id, col FROM table WHERE id IN (...) 한 번으로 채움 (목록 화면에서 행마다 쿼리가 나가지 않도록)
+// 대기 목록은 잠금 안에서 꺼내기만 하고 쿼리는 잠금 밖에서 실행함
+// (쿼리 동안 잠금을 쥐고 있으면 같은 컬럼의 다른 get()/defer 가 모두 기다리고, synchronized 면 가상 스레드가 캐리어 스레드에 고정됨)
+// 다른 스레드가 읽고 있는 Lazy 를 get() 하면 그 Lazy 만 따로 한 번 더 읽음
+final class LazyLoader {
+    // id 컬럼 이름 (결과에 이 라벨의 컬럼이 있어야 다시 읽을 수 있음)
+    static final String ID_COLUMN = "id";
+    // 한 번에 모아두는 최대 개수, 스트림으로 많은 행을 읽어도 대기 목록이 끝없이 커지지 않도록 넘치면 오래된 것부터 뺌
+    // (빠진 것은 get() 할 때 그때의 대기 목록과 같이 읽음)
+    private static final int MAX_PENDING = 1_000;
+
+    private final SimpleDb simpleDb;
+    // null 이면 다시 읽을 수 없음
+    private final String table;
+    private final Map<String, Column> columns = new ConcurrentHashMap<>();
+
+    LazyLoader(SimpleDb simpleDb, String table) {
+        this.simpleDb = simpleDb;
+        this.table = table;
+    }
+
+    <T> Lazy<T> defer(String column, RowMappers.ColumnReader reader, Object id) {
+        if (table == null || id == null) return Lazy.unavailable(column);
+
+        Column loader = columns.computeIfAbsent(column, c -> new Column(c, reader));
+        Lazy<T> lazy = Lazy.deferred(column, id, loader);
+        loader.add(lazy);
+        return lazy;
+    }
+
+    private class Column implements Lazy.Loader {
+        private final String name;
+        private final RowMappers.ColumnReader reader;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Lazy<?>> pending = new ArrayDeque<>();
+
+        private Column(String name, RowMappers.ColumnReader reader) {
+            this.name = name;
+            this.reader = reader;
+        }
+
+        private void add(Lazy<?> lazy) {
+            lock.lock();
+            try {
+                if (pending.size() >= MAX_PENDING) pending.pollFirst();
+                pending.addLast(lazy);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void load(Lazy<?> lazy) {
+            if (lazy.isLoaded()) return;
+
+            Map<Object, List<Lazy<?>>> byId = new HashMap<>();
+            byId.computeIfAbsent(lazy.id(), id -> new ArrayList<>()).add(lazy);
+            lock.lock();
+            try {
+                for (Lazy<?> waiting : pending) {
+                    if (waiting != lazy && !waiting.isLoaded())
+                        byId.computeIfAbsent(waiting.id(), id -> new ArrayList<>()).add(waiting);
+                }
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+
+            // 실패하면 꺼낸 Lazy 들은 읽지 않은 채로 남고, 각자 get() 할 때 다시 읽음
+            simpleDb.genSql()
+                    .append("SELECT " + quote(ID_COLUMN) + ", " + quote(name) + " FROM " + quote(table))
+                    .appendIn("WHERE " + quote(ID_COLUMN) + " IN (?)", byId.keySet().toArray())
+                    .selectRows((ResultSet rs) -> {
+                        List<Lazy<?>> lazies = byId.remove(rs.getObject(1));
+                        if (lazies == null) return null;
+                        Object value = reader.read(rs, 2);
+                        for (Lazy<?> loaded : lazies) set(loaded, value);
+                        return null;
+                    });
+            // 그 사이 지워진 행
+            for (List<Lazy<?>> lazies : byId.values()) {
+                for (Lazy<?> missing : lazies) set(missing, null);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void set(Lazy<?> lazy, Object value) {
+        ((Lazy<Object>) lazy).set(value);
+    }
+
+    private static String quote(String identifier) {
+        return "`" + identifier.replace("`", "``") + "`";
+    }
+}
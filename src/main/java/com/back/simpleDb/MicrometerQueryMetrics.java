@@ -0,0 +1,145 @@
+package com.back.simpleDb;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// QueryEvent 를 Micrometer 메트릭으로 기록하는 리스너
+// MicrometerQueryMetrics.bindTo(simpleDb, meterRegistry);
+// - simpledb.query            쿼리 실행 시간 (sql, outcome=success/error/timeout 태그, 히스토그램 포함)
+// - simpledb.query.rows       읽은/영향받은 행 수
+// - simpledb.query.bytes      매핑한 결과의 대략적인 크기
+// - simpledb.pool.wait        커넥션 대여 대기 시간
+// - simpledb.pool.connections 풀 커넥션 수 (state=total/idle/active), simpledb.pool.pending 대기중인 대여 요청 수
+// - simpledb.statement.cache  statement 캐시 적중/실패/퇴출 횟수 (result 태그)
+// - simpledb.entity.cache     엔티티 캐시 적중/실패/퇴출/무효화 횟수 (result 태그), simpledb.entity.cache.size 항목 수
+//                             (bindTo 전에 setEntityCache 한 경우만)
+// - simpledb.read.coalesce    같은 조회 합치기로 실제 실행한/합류해서 아낀 횟수 (result=executed/coalesced),
+//                             simpledb.read.coalesce.inflight 실행중인 조회 수 (bindTo 전에 setReadCoalescer 한 경우만)
+// - simpledb.shard.scatter    샤드 전체에 보낸 쿼리의 실행 시간 (outcome 태그), simpledb.shard.query 샤드별 실행 시간 (shard 태그)
+//                             (bindTo(ShardedSimpleDb, ...) 로 등록, 샤드 SimpleDb 의 메트릭은 샤드마다 bindTo 로 따로 등록)
+// sql 태그는 QueryEvent.getNormalizedSql() 이므로 SQL 을 문자열 연결로 만들면 태그가 끝없이 늘어남
+// (그런 경우 MeterFilter.maximumAllowableTags 로 막을 것)
+public class MicrometerQueryMetrics implements QueryListener {
+    private final MeterRegistry registry;
+    private final Timer poolWait;
+    // 같은 SQL 은 미터를 다시 찾지 않도록 캐시
+    private final Map<String, QueryMeters> metersBySql = new ConcurrentHashMap<>();
+
+    public MicrometerQueryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.poolWait = Timer.builder("simpledb.pool.wait")
+                .description("커넥션 대여 대기 시간")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // 풀/statement 캐시 게이지를 등록하고 simpleDb 에 리스너로 붙임
+    public static MicrometerQueryMetrics bindTo(SimpleDb simpleDb, MeterRegistry registry) {
+        MicrometerQueryMetrics metrics = new MicrometerQueryMetrics(registry);
+
+        ConnectionPool pool = simpleDb.getPool();
+        Gauge.builder("simpledb.pool.connections", pool, ConnectionPool::getTotalConnections).tag("state", "total").register(registry);
+        Gauge.builder("simpledb.pool.connections", pool, ConnectionPool::getIdleConnections).tag("state", "idle").register(registry);
+        Gauge.builder("simpledb.pool.connections", pool, ConnectionPool::getActiveConnections).tag("state", "active").register(registry);
+        Gauge.builder("simpledb.pool.pending", pool, ConnectionPool::getWaitingBorrowers).register(registry);
+
+        StatementCacheStats stats = pool.getStatementCacheStats();
+        FunctionCounter.builder("simpledb.statement.cache", stats, StatementCacheStats::getHits).tag("result", "hit").register(registry);
+        FunctionCounter.builder("simpledb.statement.cache", stats, StatementCacheStats::getMisses).tag("result", "miss").register(registry);
+        FunctionCounter.builder("simpledb.statement.cache", stats, StatementCacheStats::getEvictions).tag("result", "eviction").register(registry);
+
+        EntityCache entityCache = simpleDb.getEntityCache();
+        if (entityCache != null) {
+            FunctionCounter.builder("simpledb.entity.cache", entityCache, EntityCache::getHits).tag("result", "hit").register(registry);
+            FunctionCounter.builder("simpledb.entity.cache", entityCache, EntityCache::getMisses).tag("result", "miss").register(registry);
+            FunctionCounter.builder("simpledb.entity.cache", entityCache, EntityCache::getEvictions).tag("result", "eviction").register(registry);
+            FunctionCounter.builder("simpledb.entity.cache", entityCache, EntityCache::getInvalidations).tag("result", "invalidation").register(registry);
+            Gauge.builder("simpledb.entity.cache.size", entityCache, EntityCache::size).register(registry);
+        }
+
+        ReadCoalescer readCoalescer = simpleDb.getReadCoalescer();
+        if (readCoalescer != null) {
+            FunctionCounter.builder("simpledb.read.coalesce", readCoalescer, ReadCoalescer::getExecutions).tag("result", "executed").register(registry);
+            FunctionCounter.builder("simpledb.read.coalesce", readCoalescer, ReadCoalescer::getCoalesced).tag("result", "coalesced").register(registry);
+            Gauge.builder("simpledb.read.coalesce.inflight", readCoalescer, ReadCoalescer::getInFlight).register(registry);
+        }
+
+        simpleDb.addQueryListener(metrics);
+        return metrics;
+    }
+
+    // 샤드 전체 쿼리(scatter-gather) 시간 기록
+    public static void bindTo(ShardedSimpleDb shardedDb, MeterRegistry registry) {
+        Timer success = scatterTimer(registry, "success");
+        Timer error = scatterTimer(registry, "error");
+        int shardCount = shardedDb.getShards().size();
+        Timer[] shardTimers = new Timer[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shardTimers[i] = Timer.builder("simpledb.shard.query")
+                    .tag("shard", String.valueOf(i))
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        shardedDb.addScatterGatherListener(event -> {
+            (event.isSuccess() ? success : error).record(event.elapsedNanos(), TimeUnit.NANOSECONDS);
+            long[] shardElapsedNanos = event.shardElapsedNanos();
+            for (int i = 0; i < shardElapsedNanos.length; i++) {
+                if (shardElapsedNanos[i] >= 0) shardTimers[i].record(shardElapsedNanos[i], TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    private static Timer scatterTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("simpledb.shard.scatter")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // simpledb.query.bytes 에 기록
+    @Override
+    public boolean needsMappedBytes() {
+        return true;
+    }
+
+    @Override
+    public void onQuery(QueryEvent event) {
+        QueryMeters meters = metersBySql.computeIfAbsent(event.getNormalizedSql(), this::createMeters);
+        Timer timer = event.isSuccess() ? meters.success : event.isTimeout() ? meters.timeout : meters.error;
+        timer.record(event.elapsedNanos(), TimeUnit.NANOSECONDS);
+        poolWait.record(event.poolWaitNanos(), TimeUnit.NANOSECONDS);
+        if (!event.isSuccess()) return;
+
+        meters.rows.record(event.rows());
+        if (event.mappedBytes() >= 0) meters.bytes.record(event.mappedBytes());
+    }
+
+    private QueryMeters createMeters(String sql) {
+        return new QueryMeters(
+                queryTimer(sql, "success"),
+                queryTimer(sql, "error"),
+                queryTimer(sql, "timeout"),
+                DistributionSummary.builder("simpledb.query.rows").tag("sql", sql).register(registry),
+                DistributionSummary.builder("simpledb.query.bytes").baseUnit("bytes").tag("sql", sql).register(registry)
+        );
+    }
+
+    private Timer queryTimer(String sql, String outcome) {
+        return Timer.builder("simpledb.query")
+                .tag("sql", sql)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private record QueryMeters(Timer success, Timer error, Timer timeout, DistributionSummary rows, DistributionSummary bytes) {
+    }
+}
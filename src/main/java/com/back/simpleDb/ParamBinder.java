@@ -0,0 +1,10 @@
+package com.back.simpleDb;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// 파라미터 값 하나를 PreparedStatement 에 바인딩 (ParamBinders 참고)
+@FunctionalInterface
+public interface ParamBinder<T> {
+    void bind(PreparedStatement ps, int index, T value) throws SQLException;
+}
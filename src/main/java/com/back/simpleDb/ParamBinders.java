@@ -0,0 +1,206 @@
+package com.back.simpleDb;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// 값의 클래스에 맞는 setXxx 로 파라미터를 바인딩 (setObject 가 값마다 하는 타입 검사를 건너뜀)
+// ParamBinders.defaults().registerConverter(Money.class, Money::toBigDecimal); // Money 는 BigDecimal 로 바꿔서 바인딩
+// ParamBinders.defaults().register(Point.class, (ps, index, point) -> ps.setString(index, point.toWkt()));
+// - SimpleDb 마다 레지스트리를 따로 줄 수 있음 (simpleDb.setParamBinders(new ParamBinders()))
+//   새 레지스트리에 등록하지 않은 클래스는 defaults() 에 등록한 바인더를 씀, 기본은 모든 SimpleDb 가 defaults() 를 같이 씀
+// - 클래스별 바인더는 처음 볼 때 한 번 골라서 캐시 (등록한 바인더 → 상위 클래스/인터페이스에 등록한 바인더 → 기본 바인더 순)
+// - SQL 마다 마지막으로 쓴 (파라미터 클래스 → 바인더) 배열을 계획으로 캐시하고, 클래스가 같으면 캐시 조회도 하지 않음
+// - 기본: Long/Integer/... → setLong/setInt/..., String → setString, Boolean → setBoolean, byte[] → setBytes,
+//   enum → setString(name()) (RowMappers 가 읽을 때와 같은 형식), 그 밖의 타입은 setObject
+// - LocalDateTime/LocalDate/LocalTime 은 setObject 에 SQL 타입을 지정해서 넘김
+//   (setTimestamp 는 JVM 시간대 → serverTimezone 변환이 일어나 setObject 와 저장되는 값이 달라지므로 쓰지 않음)
+// 등록은 애플리케이션 시작할 때 할 것 (등록하면 캐시를 비움)
+// 등록과 동시에 바인딩 중이던 스레드가 예전 바인더를 캐시에 넣지 않도록 version 으로 확인함
+public final class ParamBinders {
+    // SQL 모양(IN 목록 개수 맞추기 덕분에 종류가 한정됨)이 이보다 많으면 계획 캐시를 비움
+    private static final int MAX_PLANS = 2_048;
+    private static final ParamBinder<Object> OBJECT = PreparedStatement::setObject;
+    private static final ParamBinders DEFAULTS = new ParamBinders(null);
+
+    // 여기에 없으면 parent 에 등록한 바인더를 씀 (defaults() 는 null)
+    private final ParamBinders parent;
+    private final Map<Class<?>, ParamBinder<?>> registered = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ParamBinder<Object>> binders = new ConcurrentHashMap<>();
+    private final Map<String, BindPlan> plans = new ConcurrentHashMap<>();
+    // 등록/해제할 때마다 증가
+    private final AtomicLong version = new AtomicLong();
+
+    public ParamBinders() {
+        this(DEFAULTS);
+    }
+
+    private ParamBinders(ParamBinders parent) {
+        this.parent = parent;
+    }
+
+    // SimpleDb 가 따로 레지스트리를 받지 않았을 때 쓰는 레지스트리
+    public static ParamBinders defaults() {
+        return DEFAULTS;
+    }
+
+    public <T> void register(Class<T> type, ParamBinder<? super T> binder) {
+        registered.put(type, binder);
+        registrationChanged();
+    }
+
+    // 바꾼 값은 그 값의 클래스에 맞는 바인더로 바인딩
+    public <T> void registerConverter(Class<T> type, Function<? super T, ?> converter) {
+        register(type, (ps, index, value) -> bind(ps, index, converter.apply(value)));
+    }
+
+    // 등록을 없앰 (테스트가 끝난 뒤 defaults() 를 원래대로 돌리는 용도 등)
+    public void unregister(Class<?> type) {
+        if (registered.remove(type) != null) registrationChanged();
+    }
+
+    // 등록한 바인더를 모두 없앰
+    public void reset() {
+        registered.clear();
+        registrationChanged();
+    }
+
+    // 버전을 먼저 올리고 캐시를 비움
+    // 바인딩 중인 스레드는 캐시에 넣은 뒤 버전이 바뀌었으면 넣은 것을 도로 뺌 (binderFor, bind 참고)
+    private void registrationChanged() {
+        version.incrementAndGet();
+        binders.clear();
+        plans.clear();
+    }
+
+    // 부모의 등록이 바뀌어도 달라짐 (두 버전 모두 늘기만 하므로 합이 같으면 바뀌지 않은 것)
+    private long version() {
+        return parent == null ? version.get() : version.get() + parent.version();
+    }
+
+    public void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.NULL);
+            return;
+        }
+        binderFor(value.getClass()).bind(ps, index, value);
+    }
+
+    // 계획과 클래스가 다른 값이 있으면 끝난 뒤에 계획을 한 번만 새로 만들어 바꿔 끼움
+    @SuppressWarnings("unchecked")
+    void bind(PreparedStatement ps, String sql, List<Object> params) throws SQLException {
+        int size = params.size();
+        if (size == 0) return;
+
+        long version = version();
+        BindPlan plan = plans.get(sql);
+        if (plan != null && plan.types().length != size) plan = null;
+        Class<?>[] types = null;
+        ParamBinder<Object>[] planBinders = null;
+        for (int i = 0; i < size; i++) {
+            Object value = params.get(i);
+            if (value == null) {
+                ps.setNull(i + 1, Types.NULL);
+                continue;
+            }
+            Class<?> type = value.getClass();
+            if (plan != null && plan.types()[i] == type) {
+                plan.binders()[i].bind(ps, i + 1, value);
+                continue;
+            }
+
+            ParamBinder<Object> binder = binderFor(type);
+            binder.bind(ps, i + 1, value);
+            if (types == null) {
+                types = plan != null ? plan.types().clone() : new Class<?>[size];
+                planBinders = plan != null ? plan.binders().clone() : new ParamBinder[size];
+            }
+            types[i] = type;
+            planBinders[i] = binder;
+        }
+
+        if (types == null) return;
+        if (plans.size() >= MAX_PLANS) plans.clear();
+        BindPlan newPlan = new BindPlan(types, planBinders);
+        plans.put(sql, newPlan);
+        if (version() != version) plans.remove(sql, newPlan);
+    }
+
+    void bind(PreparedStatement ps, String sql, Object[] params) throws SQLException {
+        bind(ps, sql, Arrays.asList(params));
+    }
+
+    @SuppressWarnings("unchecked")
+    ParamBinder<Object> binderFor(Class<?> type) {
+        ParamBinder<Object> binder = binders.get(type);
+        if (binder != null) return binder;
+
+        long version = version();
+        ParamBinder<?> registered = registered(type);
+        binder = registered != null ? (ParamBinder<Object>) registered : builtIn(type);
+        binders.putIfAbsent(type, binder);
+        if (version() != version) binders.remove(type, binder);
+        return binder;
+    }
+
+    // 정확한 클래스 → 상위 클래스 → 인터페이스 순, 없으면 부모 레지스트리에서 찾음
+    private ParamBinder<?> registered(Class<?> type) {
+        ParamBinder<?> binder = registeredHere(type);
+        if (binder != null || parent == null) return binder;
+        return parent.registered(type);
+    }
+
+    private ParamBinder<?> registeredHere(Class<?> type) {
+        if (registered.isEmpty()) return null;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            ParamBinder<?> binder = registered.get(c);
+            if (binder != null) return binder;
+        }
+        List<Class<?>> interfaces = new ArrayList<>(List.of(type.getInterfaces()));
+        for (int i = 0; i < interfaces.size(); i++) {
+            ParamBinder<?> binder = registered.get(interfaces.get(i));
+            if (binder != null) return binder;
+            interfaces.addAll(List.of(interfaces.get(i).getInterfaces()));
+        }
+        return null;
+    }
+
+    private static ParamBinder<Object> builtIn(Class<?> type) {
+        if (type == Long.class) return (ps, i, v) -> ps.setLong(i, (Long) v);
+        if (type == Integer.class) return (ps, i, v) -> ps.setInt(i, (Integer) v);
+        if (type == String.class) return (ps, i, v) -> ps.setString(i, (String) v);
+        if (type == Boolean.class) return (ps, i, v) -> ps.setBoolean(i, (Boolean) v);
+        if (type == Double.class) return (ps, i, v) -> ps.setDouble(i, (Double) v);
+        if (type == Float.class) return (ps, i, v) -> ps.setFloat(i, (Float) v);
+        if (type == Short.class) return (ps, i, v) -> ps.setShort(i, (Short) v);
+        if (type == Byte.class) return (ps, i, v) -> ps.setByte(i, (Byte) v);
+        if (type == Character.class) return (ps, i, v) -> ps.setString(i, v.toString());
+        if (type == BigDecimal.class) return (ps, i, v) -> ps.setBigDecimal(i, (BigDecimal) v);
+        if (type == byte[].class) return (ps, i, v) -> ps.setBytes(i, (byte[]) v);
+        if (type == Timestamp.class) return (ps, i, v) -> ps.setTimestamp(i, (Timestamp) v);
+        if (type == LocalDateTime.class) return (ps, i, v) -> ps.setObject(i, v, Types.TIMESTAMP);
+        if (type == LocalDate.class) return (ps, i, v) -> ps.setObject(i, v, Types.DATE);
+        if (type == LocalTime.class) return (ps, i, v) -> ps.setObject(i, v, Types.TIME);
+        // 상수마다 몸체가 있는 enum 은 익명 하위 클래스
+        if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum()))
+            return (ps, i, v) -> ps.setString(i, ((Enum<?>) v).name());
+        return OBJECT;
+    }
+
+    // 자리표시자 순서대로 마지막으로 본 파라미터 클래스와 그 바인더
+    // 여러 스레드가 같이 읽으므로 만든 뒤에는 바꾸지 않음
+    private record BindPlan(Class<?>[] types, ParamBinder<Object>[] binders) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// 풀이 관리하는 물리 커넥션 한 개와 그 상태
+// 대여/반납 시각은 유휴 정리와 누수 감지에서 사용
+@Getter
+class PooledConnection {
+    // 이 커넥션을 만든 풀 (주 DB 또는 복제본), 반납할 곳
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final long createdAt;
+    private volatile long lastUsedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+    // 드라이버에 autoCommit 을 바꾸라고 한 마지막 값, 같은 값이면 다시 보내지 않음 (JDBC 기본값은 true)
+    private boolean autoCommit = true;
+
+    PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize, StatementCacheStats statementCacheStats) {
+        this.pool = pool;
+        this.connection = connection;
+        this.statementCache = new StatementCache(connection, statementCacheSize, statementCacheStats);
+        this.createdAt = System.nanoTime();
+        this.lastUsedAt = createdAt;
+    }
+
+    void markBorrowed(Throwable borrowTrace) {
+        this.borrowedAt = System.nanoTime();
+        this.borrowTrace = borrowTrace;
+        this.leakReported = false;
+    }
+
+    void markReturned() {
+        this.lastUsedAt = System.nanoTime();
+        this.borrowTrace = null;
+    }
+
+    void markLeakReported() {
+        this.leakReported = true;
+    }
+
+    // 네트워크 오류(SQLState 08xxx)가 난 커넥션은 반납 시 풀에 돌려보내지 않음
+    void markBroken() {
+        this.broken = true;
+    }
+
+    void setAutoCommit(boolean autoCommit) throws SQLException {
+        if (this.autoCommit == autoCommit) return;
+        connection.setAutoCommit(autoCommit);
+        this.autoCommit = autoCommit;
+    }
+
+    void closeQuietly() {
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
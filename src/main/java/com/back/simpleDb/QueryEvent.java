@@ -0,0 +1,39 @@
+package com.back.simpleDb;
+
+import java.time.Duration;
+import java.util.List;
+
+// 쿼리 한 번의 실행 기록
+// elapsedNanos: 커넥션 대여부터 결과 매핑까지 (poolWaitNanos 포함)
+// rows: 조회면 읽은 행 수, 쓰기면 영향받은 행 수
+// mappedBytes: 매핑한 결과의 대략적인 크기 (행이 많으면 일부 행으로 어림)
+//              needsMappedBytes() 가 true 인 리스너가 없거나 알 수 없으면 -1 (스트림 등)
+// statementCacheHit: PreparedStatement 를 커넥션의 statement 캐시에서 꺼냈는지
+public record QueryEvent(
+        String sql,
+        List<Object> params,
+        long elapsedNanos,
+        long poolWaitNanos,
+        long rows,
+        long mappedBytes,
+        boolean statementCacheHit,
+        Throwable error
+) {
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    // 기한(Deadline, 타임아웃)이 지나서 실패했는지
+    public boolean isTimeout() {
+        return Deadline.isTimeout(error);
+    }
+
+    // 메트릭 태그/집계 키로 쓸 SQL 모양 (공백 정리, IN (?, ?, ...) 은 개수와 상관없이 하나로)
+    public String getNormalizedSql() {
+        return SqlTables.shape(sql);
+    }
+}
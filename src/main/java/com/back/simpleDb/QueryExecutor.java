@@ -0,0 +1,168 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// 비동기 쿼리(Sql.xxxAsync) 전용 실행기
+// 스레드 수와 대기열 크기가 정해져 있어서 대기열이 차면 바로 거절함 (무한정 쌓이지 않음)
+// 스레드 수는 커넥션 풀 최대 크기보다 크게 잡아도 풀에서 기다리기만 하므로 비슷하게 맞추는 것이 좋음
+// 설정값은 첫 제출 전에 바꾸는 것을 전제로 함
+public class QueryExecutor implements Executor, AutoCloseable {
+    @Getter
+    @Setter
+    private int threads = 8;
+    @Getter
+    @Setter
+    private int queueCapacity = 1_000;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    // 실행 전에 future 가 이미 끝나서 (취소되어서) 건너뛴 작업
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ThreadPoolExecutor executor;
+
+    @Override
+    public void execute(Runnable command) {
+        submit(() -> {
+            command.run();
+            return Outcome.COMPLETED;
+        });
+    }
+
+    // CompletableFuture.supplyAsync(task, this) 대신 씀
+    // supplyAsync 는 작업의 예외를 future 에 담고 정상적으로 끝나므로 execute 에서는 실패를 셀 수 없음
+    <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return supply(new CompletableFuture<>(), task);
+    }
+
+    // 결과를 future 에 넘김, 실행 전에 future 가 끝났으면 (취소되었으면) 실행하지 않음
+    // 대기열이 차 있으면 RejectedExecutionException
+    <T> CompletableFuture<T> supply(CompletableFuture<T> future, Supplier<T> task) {
+        submit(() -> {
+            if (future.isDone()) return Outcome.SKIPPED;
+            try {
+                future.complete(task.get());
+                return Outcome.COMPLETED;
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+                return Outcome.FAILED;
+            }
+        });
+        return future;
+    }
+
+    // task 가 돌려준 결과대로 셈, 예외를 던지면 실패로 셈
+    private void submit(Supplier<Outcome> command) {
+        long enqueuedAt = System.nanoTime();
+        Runnable task = () -> {
+            queueWaitNanos.add(System.nanoTime() - enqueuedAt);
+            Outcome outcome;
+            try {
+                outcome = command.get();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            }
+            switch (outcome) {
+                case COMPLETED -> completed.increment();
+                case FAILED -> failed.increment();
+                case SKIPPED -> skipped.increment();
+            }
+        };
+
+        try {
+            executor().execute(task);
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getActiveCount() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    public double getAverageQueueWaitMillis() {
+        long started = submitted.sum() - getQueueSize();
+        return started <= 0 ? 0 : queueWaitNanos.sum() / 1_000_000.0 / started;
+    }
+
+    @Override
+    public void close() {
+        ThreadPoolExecutor executor = this.executor;
+        if (executor != null) executor.shutdown();
+    }
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor current = executor;
+        if (current != null) return current;
+        lock.lock();
+        try {
+            if (executor == null) {
+                executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), daemonThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+                executor.allowCoreThreadTimeOut(true);
+            }
+            return executor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private enum Outcome {
+        COMPLETED, FAILED, SKIPPED
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        AtomicInteger sequence = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "simpleDb-async-" + sequence.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.back.simpleDb;
+
+// 쿼리가 한 번 실행될 때마다 호출됨 (성공/실패 모두)
+// simpleDb.addQueryListener(event -> ...);
+// 쿼리를 실행한 스레드에서 바로 호출되므로 오래 걸리는 작업은 다른 스레드로 넘길 것
+@FunctionalInterface
+public interface QueryListener {
+    void onQuery(QueryEvent event);
+
+    // QueryEvent.mappedBytes 를 쓰는지
+    // 하나라도 true 인 리스너가 있을 때만 결과 크기를 어림함 (없으면 mappedBytes 는 -1)
+    default boolean needsMappedBytes() {
+        return false;
+    }
+}
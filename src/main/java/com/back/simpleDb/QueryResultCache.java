@@ -0,0 +1,266 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// 읽기 쿼리 결과 캐시 (프로세스 내부)
+// - 키: 공백을 정리한 SQL + 파라미터 + 결과 형태(selectRows/selectLong/클래스 등)
+// - 용량은 결과의 대략적인 바이트 크기(weight) 합으로 제한하고, 넘치면 가장 오래 안 쓰인 것부터 버림
+// - 쿼리마다 TTL 을 줄 수 있음 (sql.cached(Duration.ofSeconds(5)))
+// - insert/update/delete/run 이 같은 테이블을 건드리면 그 테이블을 읽은 결과를 모두 지움
+// 캐시된 결과는 여러 호출자가 같이 보므로 돌려받은 객체를 수정하면 안 됨
+public class QueryResultCache {
+    // weigh 가 따라 들어가는 깊이 (List<객체> 안의 객체의 프로퍼티 정도까지)
+    private static final int MAX_WEIGH_DEPTH = 4;
+    // estimateWeight 가 큰 결과에서 크기를 재는 행 수
+    private static final int WEIGH_SAMPLE_SIZE = 16;
+
+    @Getter
+    @Setter
+    private long maxWeightBytes = 64L * 1024 * 1024;
+    @Getter
+    @Setter
+    private Duration defaultTtl = Duration.ofSeconds(30);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Set<Key>> keysByTable = new HashMap<>();
+    private long weight;
+    // 무효화될 때마다 증가
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String sql, List<Object> params, String kind, Duration ttl, Supplier<T> loader) {
+        String normalizedSql = SqlTables.normalize(sql);
+        Key key = new Key(normalizedSql, Arrays.asList(params.toArray()), kind);
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - now > 0) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.increment();
+        // 적재 중에 같은 테이블이 바뀌면 오래된 결과를 넣지 않도록 세대 번호로 확인
+        long generation = generation();
+        T value = loader.get();
+        put(key, value, SqlTables.readTables(normalizedSql), now + (ttl == null ? defaultTtl : ttl).toNanos(), generation);
+        return value;
+    }
+
+    public void invalidateTable(String table) {
+        lock.lock();
+        try {
+            generation++;
+            // 어떤 테이블을 읽는지 다 알아내지 못한 결과도 함께 지움
+            for (String t : List.of(table, SqlTables.UNKNOWN_TABLES)) {
+                Set<Key> keys = keysByTable.remove(t);
+                if (keys == null) continue;
+                for (Key key : keys) {
+                    if (remove(key)) invalidations.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            invalidations.add(entries.size());
+            entries.clear();
+            keysByTable.clear();
+            weight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public double getHitRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public long getWeightBytes() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Key key, Object value, Set<String> tables, long expiresAt, long loadedGeneration) {
+        long entryWeight = weigh(value) + key.weight();
+        if (entryWeight > maxWeightBytes) return;
+
+        lock.lock();
+        try {
+            if (generation != loadedGeneration) return;
+
+            remove(key);
+            entries.put(key, new Entry(value, tables, entryWeight, expiresAt));
+            weight += entryWeight;
+            for (String table : tables) {
+                keysByTable.computeIfAbsent(table, t -> new HashSet<>()).add(key);
+            }
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeightBytes && eldest.hasNext()) {
+                Map.Entry<Key, Entry> e = eldest.next();
+                eldest.remove();
+                unlink(e.getKey(), e.getValue());
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // lock 을 잡은 상태에서만 호출
+    private boolean remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return false;
+        unlink(key, entry);
+        return true;
+    }
+
+    private void unlink(Key key, Entry entry) {
+        weight -= entry.weight;
+        for (String table : entry.tables) {
+            Set<Key> keys = keysByTable.get(table);
+            if (keys == null) continue;
+            keys.remove(key);
+            if (keys.isEmpty()) keysByTable.remove(table);
+        }
+    }
+
+    // 정확한 크기가 아니라 용량 제한에 쓸 대략적인 추정치
+    // - selectRows(Class) 로 읽은 객체/레코드는 RowMappers 가 매핑하는 프로퍼티 값을 더해서 어림 (TEXT 컬럼이 든 행도 제대로 무거움)
+    // - 그 밖의 JDK 객체 (LocalDateTime, UUID 등) 는 32, 프로퍼티를 읽을 수 없는 객체나 MAX_WEIGH_DEPTH 보다 깊은 객체는 64 로 침
+    //   (그래서 큰 값을 품은 그런 객체는 실제보다 가볍게 잡힘)
+    static long weigh(Object value) {
+        return weigh(value, 0);
+    }
+
+    // 메트릭용 (QueryEvent.mappedBytes), 결과를 한 번 더 다 훑지 않도록 행이 많으면 고르게 고른 일부 행으로 어림
+    static long estimateWeight(Object value) {
+        if (!(value instanceof List<?> list) || list.size() <= WEIGH_SAMPLE_SIZE) return weigh(value);
+        int size = list.size();
+        long sampled = 0;
+        for (int i = 0; i < WEIGH_SAMPLE_SIZE; i++) {
+            sampled += weigh(list.get((int) ((long) i * size / WEIGH_SAMPLE_SIZE)), 1);
+        }
+        return 16 + 8L * size + sampled * size / WEIGH_SAMPLE_SIZE;
+    }
+
+    private static long weigh(Object value, int depth) {
+        if (value == null) return 8;
+        if (value instanceof String s) return 40 + 2L * s.length();
+        if (value instanceof Number || value instanceof Boolean) return 16;
+        // 상수를 같이 가리키기만 함
+        if (value instanceof Enum<?>) return 0;
+        if (value instanceof byte[] bytes) return 16 + bytes.length;
+        if (value instanceof long[] longs) return 16 + 8L * longs.length;
+        if (value instanceof int[] ints) return 16 + 4L * ints.length;
+        if (depth >= MAX_WEIGH_DEPTH) return 64;
+        if (value instanceof Map<?, ?> map) {
+            long sum = 16;
+            for (Object v : map.values()) sum += 8 + weigh(v, depth + 1);
+            return sum;
+        }
+        if (value instanceof Collection<?> collection) {
+            long sum = 16;
+            for (Object v : collection) sum += 8 + weigh(v, depth + 1);
+            return sum;
+        }
+        if (value instanceof Object[] array) {
+            long sum = 16;
+            for (Object v : array) sum += 8 + weigh(v, depth + 1);
+            return sum;
+        }
+        // 아직 읽지 않은 값은 들고 있지 않음
+        if (value instanceof Lazy<?> lazy) return 24 + (lazy.isLoaded() ? weigh(lazy.get(), depth + 1) : 0);
+        if (value.getClass().getName().startsWith("java.")) return 32;
+
+        Object[] properties = RowMappers.propertyValues(value);
+        if (properties == null) return 64;
+        long sum = 16;
+        for (Object v : properties) sum += 8 + weigh(v, depth + 1);
+        return sum;
+    }
+
+    private record Key(String sql, List<Object> params, String kind) {
+        long weight() {
+            return 40 + 2L * sql.length() + 16L * params.size();
+        }
+    }
+
+    private record Entry(Object value, Set<String> tables, long weight, long expiresAt) {
+    }
+}
@@ -0,0 +1,43 @@
+package com.back.simpleDb;
+
+import java.util.List;
+
+// 쿼리 한 번의 실행 시간을 재는 용도 (Sql, Batch 에서 실행마다 하나씩 만듦)
+// 시각은 System.nanoTime() 만 쓰고, 이벤트 객체는 SimpleDb 가 필요할 때만 만듦
+final class QueryTimer {
+    private final String sql;
+    private final List<Object> params;
+    private final long startedAt = System.nanoTime();
+    private long poolWaitNanos;
+    private boolean statementCacheHit;
+    private long rows;
+    private Object result;
+
+    QueryTimer(String sql, List<Object> params) {
+        this.sql = sql;
+        this.params = params;
+    }
+
+    void connectionAcquired() {
+        poolWaitNanos = System.nanoTime() - startedAt;
+    }
+
+    void statementPrepared(boolean cacheHit) {
+        statementCacheHit = cacheHit;
+    }
+
+    // result 는 mappedBytes 계산용 (쓰기 등 매핑한 결과가 없으면 null)
+    void completed(long rows, Object result) {
+        this.rows = rows;
+        this.result = result;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    QueryEvent toEvent(long elapsedNanos, boolean weighResult, Throwable error) {
+        long mappedBytes = weighResult && result != null ? QueryResultCache.estimateWeight(result) : -1;
+        return new QueryEvent(sql, params, elapsedNanos, poolWaitNanos, rows, mappedBytes, statementCacheHit, error);
+    }
+}
@@ -0,0 +1,42 @@
+package com.back.simpleDb;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 기한이 지난 쿼리를 취소하는 타이머 (SimpleDb 당 스레드 하나, 기한이 있는 쿼리를 처음 실행할 때 시작)
+// 쿼리가 먼저 끝나면 예약을 바로 지우므로 대기열에는 실행중인 쿼리만 남음
+final class QueryWatchdog implements AutoCloseable {
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ScheduledThreadPoolExecutor scheduler;
+
+    ScheduledFuture<?> schedule(Runnable onExpired, long delayNanos) {
+        return scheduler().schedule(onExpired, Math.max(delayNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        ScheduledThreadPoolExecutor scheduler = this.scheduler;
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private ScheduledThreadPoolExecutor scheduler() {
+        ScheduledThreadPoolExecutor current = scheduler;
+        if (current != null) return current;
+        lock.lock();
+        try {
+            if (scheduler == null) {
+                scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                    Thread t = new Thread(r, "simpleDb-query-watchdog");
+                    t.setDaemon(true);
+                    return t;
+                });
+                scheduler.setRemoveOnCancelPolicy(true);
+            }
+            return scheduler;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
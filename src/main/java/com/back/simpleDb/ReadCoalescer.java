@@ -0,0 +1,167 @@
+package com.back.simpleDb;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// 같은 조회를 동시에 여러 스레드가 보낼 때 하나만 실행하고 결과를 나눠 가짐 (single-flight)
+// simpleDb.setReadCoalescer(new ReadCoalescer());
+// - 키: SQL 문자열 + 파라미터 + 결과 형태 (QueryResultCache 와 같음), 실행중인 조회가 있으면 그 future 를 기다림
+// - 결과를 저장해두지 않으므로 끝난 조회의 결과를 다시 쓰는 일은 없음 (캐시처럼 오래된 값이 남지 않음)
+// - 트랜잭션 밖의 잠금 없는 조회만
+// - 실행 중에 그 테이블에 쓰기가 있으면 (커밋 포함) 그 뒤로 오는 조회는 합류하지 않고 새로 실행함
+//   그래서 방금 쓴 스레드가 쓰기 전에 시작된 조회의 결과를 받는 일은 없음
+// - 먼저 실행한 조회가 시간 초과/취소로 실패하면 기다리던 쪽은 직접 다시 실행함 (다른 오류는 그대로 받음)
+// - 주 DB 로 가는 조회(onPrimary, read-your-writes)와 복제본으로 가는 조회는 서로 합치지 않음
+// List 결과는 먼저 실행한 쪽을 포함해 모두 같은 수정 불가 List 를 받고, 배열은 호출자마다 복사본을 받음
+public class ReadCoalescer {
+    private final ConcurrentHashMap<Key, Flight> flights = new ConcurrentHashMap<>();
+    // 쓰기마다 증가하는 번호, 테이블별 마지막 쓰기 번호
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> tableWrittenAt = new ConcurrentHashMap<>();
+    // 어느 테이블인지 모르는 쓰기의 마지막 번호
+    private volatile long anyWrittenAt;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    // primary: 주 DB 에서 읽어야 하는 조회인지 (복제본에서 읽는 조회와는 합치지 않음, 복제 지연 때문)
+    <T> T execute(String sql, List<Object> params, String kind, boolean primary, Deadline deadline, Supplier<T> loader) {
+        Key key = new Key(sql, Arrays.asList(params.toArray()), kind, primary);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null && isJoinable(flight)) {
+                Object result = await(flight, deadline);
+                if (result == Flight.RETRY) return loader.get();
+                coalesced.increment();
+                return (T) share(result);
+            }
+
+            Flight mine = new Flight(writeSequence.get(), SqlTables.readTables(sql));
+            boolean leader = flight == null ? flights.putIfAbsent(key, mine) == null : flights.replace(key, flight, mine);
+            if (!leader) continue;
+
+            executions.increment();
+            try {
+                // List 는 먼저 실행한 쪽도 기다린 쪽과 같은 (수정할 수 없는) List 를 받음
+                // 배열은 복사본을 나눠주므로 먼저 실행한 쪽은 원본을 그대로 가짐
+                T result = loader.get();
+                Object shared = freeze(result);
+                mine.future.complete(shared);
+                return result instanceof List<?> ? (T) shared : result;
+            } catch (Throwable e) {
+                mine.future.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, mine);
+            }
+        }
+    }
+
+    // table 이 null 이면 어느 테이블인지 모르는 쓰기
+    void tableWritten(String table) {
+        long sequence = writeSequence.incrementAndGet();
+        if (table == null) anyWrittenAt = sequence;
+        else tableWrittenAt.merge(table, sequence, Math::max);
+    }
+
+    // 실행이 시작된 뒤로 읽는 테이블에 쓰기가 없었으면 합류
+    private boolean isJoinable(Flight flight) {
+        if (anyWrittenAt > flight.startedAt) return false;
+        // 읽는 테이블을 다 알아내지 못했으면 어떤 쓰기든 있었으면 합류하지 않음
+        if (flight.tables.contains(SqlTables.UNKNOWN_TABLES)) return writeSequence.get() == flight.startedAt;
+        for (String table : flight.tables) {
+            Long writtenAt = tableWrittenAt.get(table);
+            if (writtenAt != null && writtenAt > flight.startedAt) return false;
+        }
+        return true;
+    }
+
+    // 기다리는 쪽도 자기 기한을 지킴
+    private static Object await(Flight flight, Deadline deadline) {
+        try {
+            if (deadline == null) return flight.future.get();
+            long remaining = deadline.remainingNanos();
+            if (remaining <= 0) throw Deadline.timeoutError(null);
+            return flight.future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw Deadline.timeoutError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // 먼저 실행한 쪽의 기한/취소 때문에 실패한 것은 이쪽 책임이 아님
+            if (Deadline.isTimeout(cause) || isCancelled(cause)) return Flight.RETRY;
+            if (cause instanceof RuntimeException runtimeException) throw runtimeException;
+            if (cause instanceof Error error) throw error;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static boolean isCancelled(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof SQLException sqlException && "70100".equals(sqlException.getSQLState())) return true;
+        }
+        return false;
+    }
+
+    // 기다린 쪽에 넘길 결과
+    // List 는 복사해서 수정할 수 없게 감쌈 (원래 List 를 감싸기만 하면 바뀐 내용이 그대로 보임, 값에 null 이 있을 수 있어서 List.copyOf 는 못 씀)
+    private static Object freeze(Object result) {
+        if (result instanceof List<?> list) return Collections.unmodifiableList(new ArrayList<>(list));
+        if (result instanceof long[] array) return array.clone();
+        if (result instanceof int[] array) return array.clone();
+        return result;
+    }
+
+    // 배열은 불변으로 감쌀 수 없으므로 기다린 쪽마다 복사
+    private static Object share(Object result) {
+        if (result instanceof long[] array) return array.clone();
+        if (result instanceof int[] array) return array.clone();
+        return result;
+    }
+
+    // 실제로 DB 에 보낸 조회 수
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    // 실행중인 조회에 합류해서 아낀 조회 수
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    private record Key(String sql, List<Object> params, String kind, boolean primary) {
+    }
+
+    private static final class Flight {
+        // 먼저 실행한 쪽이 시간 초과/취소로 실패했다는 표시
+        private static final Object RETRY = new Object();
+
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private final long startedAt;
+        private final Set<String> tables;
+
+        private Flight(long startedAt, Set<String> tables) {
+            this.startedAt = startedAt;
+            this.tables = tables;
+        }
+    }
+}
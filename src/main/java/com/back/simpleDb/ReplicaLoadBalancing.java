@@ -0,0 +1,9 @@
+package com.back.simpleDb;
+
+// 복제본이 여러 개일 때 조회를 나눠주는 방식
+public enum ReplicaLoadBalancing {
+    // 차례대로
+    ROUND_ROBIN,
+    // 빌려간 커넥션 + 대기중인 대여 요청이 가장 적은 복제본 (느린 복제본을 피함)
+    LEAST_OUTSTANDING
+}
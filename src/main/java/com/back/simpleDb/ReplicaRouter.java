@@ -0,0 +1,58 @@
+package com.back.simpleDb;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 읽기 전용 복제본 풀 목록과 조회를 어느 복제본으로 보낼지 고르는 역할
+class ReplicaRouter {
+    private final List<ConnectionPool> replicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile ReplicaLoadBalancing loadBalancing = ReplicaLoadBalancing.ROUND_ROBIN;
+
+    void add(ConnectionPool replica) {
+        replicas.add(replica);
+    }
+
+    boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    List<ConnectionPool> getReplicas() {
+        return replicas;
+    }
+
+    void setLoadBalancing(ReplicaLoadBalancing loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    // 복제본이 없으면 null
+    ConnectionPool choose() {
+        List<ConnectionPool> candidates = replicas;
+        int size = candidates.size();
+        if (size == 0) return null;
+        if (size == 1) return candidates.get(0);
+
+        if (loadBalancing == ReplicaLoadBalancing.ROUND_ROBIN) {
+            return candidates.get(Math.floorMod(next.getAndIncrement(), size));
+        }
+
+        // 부하가 같으면 한 곳에 몰리지 않도록 시작 위치를 돌림
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        ConnectionPool best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            ConnectionPool candidate = candidates.get((start + i) % size);
+            int outstanding = candidate.getActiveConnections() + candidate.getWaitingBorrowers();
+            if (outstanding < bestOutstanding) {
+                best = candidate;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+
+    void close() {
+        replicas.forEach(ConnectionPool::close);
+    }
+}
@@ -0,0 +1,53 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// ResultSet 을 한 행씩 읽어서 넘겨주는 Iterator
+// hasNext() 가 불릴 때만 rs.next() 를 호출하므로 스트리밍 결과셋과 함께 쓰면 메모리를 일정하게 유지함
+// 읽은 행 수와 읽다가 난 오류는 state 에 기록 (스트림을 닫을 때 쿼리 결과로 알림)
+class ResultSetIterator<T> implements Iterator<T> {
+    private final ResultSet rs;
+    private final RowMapper<T> rowMapper;
+    private final CursorState state;
+    private boolean fetched;
+    private boolean hasRow;
+
+    ResultSetIterator(ResultSet rs, RowMapper<T> rowMapper, CursorState state) {
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+        this.state = state;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            try {
+                hasRow = rs.next();
+            } catch (SQLException e) {
+                state.failed(e);
+                throw new RuntimeException(e);
+            }
+            fetched = true;
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        fetched = false;
+        state.rowCount++;
+        try {
+            return rowMapper.mapRow(rs);
+        } catch (SQLException e) {
+            state.failed(e);
+            throw new RuntimeException(e);
+        } catch (RuntimeException e) {
+            state.failed(e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// ResultSetIterator 의 long 버전, 첫 컬럼을 박싱 없이 넘겨줌 (NULL 은 0)
+// 읽은 행 수와 읽다가 난 오류는 state 에 기록 (스트림을 닫을 때 QueryTimer 에 기록)
+class ResultSetLongIterator implements PrimitiveIterator.OfLong {
+    private final ResultSet rs;
+    private final CursorState state;
+    private boolean fetched;
+    private boolean hasRow;
+
+    ResultSetLongIterator(ResultSet rs, CursorState state) {
+        this.rs = rs;
+        this.state = state;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!fetched) {
+            try {
+                hasRow = rs.next();
+            } catch (SQLException e) {
+                state.failed(e);
+                throw new RuntimeException(e);
+            }
+            fetched = true;
+        }
+        return hasRow;
+    }
+
+    @Override
+    public long nextLong() {
+        if (!hasNext()) throw new NoSuchElementException();
+        fetched = false;
+        state.rowCount++;
+        try {
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            state.failed(e);
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// 컬럼 단위로 값을 모아두는 결과 테이블 (sql.selectTable())
+// 정수 컬럼은 long[], 실수 컬럼은 double[] 에 박싱 없이 저장하고 NULL 은 BitSet 으로 표시
+// 그 외 컬럼은 Object[] 에 저장
+// 집계/리포트처럼 숫자 컬럼을 많이 읽는 경우 행마다 Map 을 만드는 것보다 할당이 훨씬 적음
+// getObject 로 읽으면 정수 컬럼은 Long, 실수 컬럼은 Double 로 나옴
+public final class ResultTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ColumnIndex columns;
+    private final Column[] data;
+    private int rowCount;
+
+    private ResultTable(ColumnIndex columns, Column[] data) {
+        this.columns = columns;
+        this.data = data;
+    }
+
+    static ResultTable from(ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        ColumnIndex columns = ColumnIndex.of(meta);
+        Column[] data = new Column[columns.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = Column.of(meta, columns.columnNumber(i));
+        }
+
+        ResultTable table = new ResultTable(columns, data);
+        while (rs.next()) {
+            int row = table.rowCount++;
+            for (Column column : data) {
+                column.read(rs, row);
+            }
+        }
+        return table;
+    }
+
+    public ColumnIndex getColumns() {
+        return columns;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return data[column].isNull(row);
+    }
+
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return data[column].getLong(row);
+    }
+
+    public long getLong(int row, String label) {
+        return getLong(row, position(label));
+    }
+
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return data[column].getDouble(row);
+    }
+
+    public double getDouble(int row, String label) {
+        return getDouble(row, position(label));
+    }
+
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        return data[column].getObject(row);
+    }
+
+    public Object getObject(int row, String label) {
+        return getObject(row, position(label));
+    }
+
+    // 행 수만큼 잘라서 복사해 돌려줌
+    public long[] longColumn(String label) {
+        Column column = data[position(label)];
+        if (!(column instanceof LongColumn longColumn))
+            throw new IllegalArgumentException("정수 컬럼이 아닙니다: " + label);
+        return Arrays.copyOf(longColumn.values, rowCount);
+    }
+
+    public double[] doubleColumn(String label) {
+        Column column = data[position(label)];
+        if (!(column instanceof DoubleColumn doubleColumn))
+            throw new IllegalArgumentException("실수 컬럼이 아닙니다: " + label);
+        return Arrays.copyOf(doubleColumn.values, rowCount);
+    }
+
+    private int position(String label) {
+        int position = columns.indexOf(label);
+        if (position < 0) throw new IllegalArgumentException("없는 컬럼입니다: " + label);
+        return position;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) throw new IndexOutOfBoundsException(row);
+    }
+
+    private abstract static class Column {
+        final int columnNumber;
+        final BitSet nulls = new BitSet();
+
+        Column(int columnNumber) {
+            this.columnNumber = columnNumber;
+        }
+
+        static Column of(ResultSetMetaData meta, int columnNumber) throws SQLException {
+            return switch (meta.getColumnType(columnNumber)) {
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> new LongColumn(columnNumber);
+                // BIGINT UNSIGNED 는 long 범위를 넘을 수 있음
+                case Types.BIGINT -> meta.isSigned(columnNumber) ? new LongColumn(columnNumber) : new ObjectColumn(columnNumber);
+                case Types.REAL, Types.FLOAT, Types.DOUBLE -> new DoubleColumn(columnNumber);
+                default -> new ObjectColumn(columnNumber);
+            };
+        }
+
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        abstract void read(ResultSet rs, int row) throws SQLException;
+
+        abstract Object getObject(int row);
+
+        long getLong(int row) {
+            Object value = getObject(row);
+            if (value == null) return 0;
+            if (value instanceof Number number) return number.longValue();
+            if (value instanceof Boolean bool) return bool ? 1 : 0;
+            return Long.parseLong(value.toString().trim());
+        }
+
+        double getDouble(int row) {
+            Object value = getObject(row);
+            if (value == null) return 0;
+            if (value instanceof Number number) return number.doubleValue();
+            return Double.parseDouble(value.toString().trim());
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values = new long[INITIAL_CAPACITY];
+
+        LongColumn(int columnNumber) {
+            super(columnNumber);
+        }
+
+        @Override
+        void read(ResultSet rs, int row) throws SQLException {
+            if (row == values.length) values = Arrays.copyOf(values, row * 2);
+            values[row] = rs.getLong(columnNumber);
+            if (rs.wasNull()) nulls.set(row);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleColumn(int columnNumber) {
+            super(columnNumber);
+        }
+
+        @Override
+        void read(ResultSet rs, int row) throws SQLException {
+            if (row == values.length) values = Arrays.copyOf(values, row * 2);
+            values[row] = rs.getDouble(columnNumber);
+            if (rs.wasNull()) nulls.set(row);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        Object[] values = new Object[INITIAL_CAPACITY];
+
+        ObjectColumn(int columnNumber) {
+            super(columnNumber);
+        }
+
+        @Override
+        void read(ResultSet rs, int row) throws SQLException {
+            if (row == values.length) values = Arrays.copyOf(values, row * 2);
+            values[row] = rs.getObject(columnNumber);
+            if (values[row] == null) nulls.set(row);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.back.simpleDb;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// selectRows() 결과의 한 행
+// 컬럼 라벨은 결과셋 단위로 공유하는 ColumnIndex 에 두고, 행은 값 배열만 가짐
+// → 행마다 LinkedHashMap 엔트리와 라벨 문자열을 만들지 않음
+// Map 으로 읽을 수 있고 컬럼 순서도 유지되지만 읽기 전용임
+public final class Row extends AbstractMap<String, Object> {
+    private final ColumnIndex columns;
+    private final Object[] values;
+
+    Row(ColumnIndex columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+    }
+
+    public ColumnIndex getColumns() {
+        return columns;
+    }
+
+    public Object get(int position) {
+        return values[position];
+    }
+
+    @Override
+    public Object get(Object key) {
+        int position = columns.indexOf(key);
+        return position < 0 ? null : values[position];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return columns.indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int position = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return position < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(columns.label(position), values[position]);
+                        position++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+}
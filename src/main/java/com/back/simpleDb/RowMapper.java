@@ -0,0 +1,10 @@
+package com.back.simpleDb;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// ResultSet 의 현재 행 하나를 객체로 변환
+@FunctionalInterface
+public interface RowMapper<T> {
+    T mapRow(ResultSet rs) throws SQLException;
+}
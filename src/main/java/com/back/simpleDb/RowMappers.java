@@ -0,0 +1,388 @@
+package com.back.simpleDb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 아무 클래스/레코드로 행을 매핑하는 RowMapper 생성기
+// (클래스, 결과셋 컬럼 구성) 조합마다 한 번만 만들어서 캐시함
+// - 컬럼 라벨 → 프로퍼티 매칭은 생성 시 한 번만 (대소문자, snake_case 무시)
+// - 값은 컬럼 인덱스로 읽고, setter/생성자는 MethodHandle 로 호출 → 행마다 리플렉션 조회 없음
+// - 일반 클래스: 기본 생성자 + setter (없으면 필드에 직접 대입)
+// - 레코드: 정식 생성자에 컬럼 값을 넘김 (없는 컬럼은 null/0/false)
+// - Lazy<T> 프로퍼티: 컬럼이 있으면 그 값, 없으면 나중에 id 로 다시 읽는 Lazy (Sql 이 LazyLoader 를 넘겨줄 때만, Lazy 참고)
+// - Reader/InputStream 프로퍼티: 결과셋이 열려 있는 동안만 읽을 수 있으므로 stream() 안에서 바로 소비할 것
+public final class RowMappers {
+    private static final Map<MapperKey, MapperFactory<?>> CACHE = new ConcurrentHashMap<>();
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final Map<Class<?>, MethodHandle[]> GETTERS = new ConcurrentHashMap<>();
+    // 프로퍼티를 읽을 수 없는 클래스 (다른 모듈의 클래스 등)
+    private static final MethodHandle[] NO_GETTERS = new MethodHandle[0];
+
+    private RowMappers() {
+    }
+
+    public static <T> RowMapper<T> forResultSet(Class<T> type, ResultSet rs) throws SQLException {
+        return forColumns(type, columnLabels(rs.getMetaData()));
+    }
+
+    public static <T> RowMapper<T> forColumns(Class<T> type, List<String> columnLabels) {
+        return factory(type, columnLabels).create(null);
+    }
+
+    // 결과에 없는 Lazy 프로퍼티는 lazyLoader 로 나중에 읽음
+    static <T> RowMapper<T> forResultSet(Class<T> type, ResultSet rs, LazyLoader lazyLoader) throws SQLException {
+        return factory(type, columnLabels(rs.getMetaData())).create(lazyLoader);
+    }
+
+    // Sql.project 에서 SELECT * 대신 쓸 컬럼 목록 (Lazy 프로퍼티는 빼고, 있으면 다시 읽을 때 필요한 id 는 넣음)
+    static List<String> projectionColumns(Class<?> type) {
+        List<String> columns = new ArrayList<>();
+        boolean hasLazy = false;
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                if (component.getType() == Lazy.class) hasLazy = true;
+                else columns.add(component.getName());
+            }
+        } else {
+            for (Field field : fields(type).values()) {
+                if (field.getType() == Lazy.class) hasLazy = true;
+                else columns.add(field.getName());
+            }
+        }
+        if (hasLazy && columns.stream().noneMatch(c -> normalize(c).equals(LazyLoader.ID_COLUMN)))
+            columns.add(0, LazyLoader.ID_COLUMN);
+        if (columns.isEmpty()) throw new IllegalArgumentException("%s 에 컬럼으로 읽을 프로퍼티가 없습니다.".formatted(type.getName()));
+        return columns;
+    }
+
+    // 매핑할 때와 같은 프로퍼티 (레코드 컴포넌트, 일반 클래스는 필드) 의 값, 읽을 수 없으면 null
+    // QueryResultCache 가 결과 크기를 어림할 때 씀
+    static Object[] propertyValues(Object value) {
+        MethodHandle[] getters = GETTERS.computeIfAbsent(value.getClass(), RowMappers::getters);
+        if (getters == NO_GETTERS) return null;
+        Object[] values = new Object[getters.length];
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                values[i] = (Object) getters[i].invokeExact(value);
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+        return values;
+    }
+
+    private static MethodHandle[] getters(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, LOOKUP);
+            List<MethodHandle> getters = new ArrayList<>();
+            if (type.isRecord()) {
+                for (RecordComponent component : type.getRecordComponents()) {
+                    getters.add(lookup.unreflect(component.getAccessor()));
+                }
+            } else {
+                for (Field field : fields(type).values()) {
+                    getters.add(lookup.unreflectGetter(field));
+                }
+            }
+            return getters.stream()
+                    .map(getter -> getter.asType(MethodType.methodType(Object.class, Object.class)))
+                    .toArray(MethodHandle[]::new);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return NO_GETTERS;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> MapperFactory<T> factory(Class<T> type, List<String> columnLabels) {
+        return (MapperFactory<T>) CACHE.computeIfAbsent(new MapperKey(type, columnLabels), key -> create(type, columnLabels));
+    }
+
+    static List<String> columnLabels(ResultSetMetaData meta) throws SQLException {
+        String[] labels = new String[meta.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = meta.getColumnLabel(i + 1);
+        }
+        return Arrays.asList(labels);
+    }
+
+    private static <T> MapperFactory<T> create(Class<T> type, List<String> columnLabels) {
+        try {
+            return type.isRecord() ? createForRecord(type, columnLabels) : createForBean(type, columnLabels);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("%s 에 대한 매퍼를 만들 수 없습니다.".formatted(type.getName()), e);
+        }
+    }
+
+    private static <T> MapperFactory<T> createForBean(Class<T> type, List<String> columnLabels) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, LOOKUP);
+        MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+
+        Map<String, Field> fields = fields(type);
+        Map<String, Integer> columnIndexByName = columnIndexByName(columnLabels);
+
+        int[] columnIndexes = new int[columnLabels.size()];
+        ColumnReader[] readers = new ColumnReader[columnLabels.size()];
+        MethodHandle[] setters = new MethodHandle[columnLabels.size()];
+        int count = 0;
+        for (int i = 0; i < columnLabels.size(); i++) {
+            Field field = fields.get(normalize(columnLabels.get(i)));
+            if (field == null) continue;
+
+            columnIndexes[count] = i + 1;
+            readers[count] = field.getType() == Lazy.class ? loaded(ColumnReader.of(lazyValueType(field.getGenericType()))) : ColumnReader.of(field.getType());
+            setters[count] = findSetter(lookup, type, field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            count++;
+        }
+
+        // 결과에 컬럼이 없는 Lazy 프로퍼티
+        List<Field> lazyFields = fields.values().stream()
+                .filter(field -> field.getType() == Lazy.class && !columnIndexByName.containsKey(normalize(field.getName())))
+                .toList();
+        String[] lazyColumns = new String[lazyFields.size()];
+        ColumnReader[] lazyReaders = new ColumnReader[lazyFields.size()];
+        MethodHandle[] lazySetters = new MethodHandle[lazyFields.size()];
+        for (int i = 0; i < lazyFields.size(); i++) {
+            Field field = lazyFields.get(i);
+            lazyColumns[i] = field.getName();
+            lazyReaders[i] = ColumnReader.of(lazyValueType(field.getGenericType()));
+            lazySetters[i] = findSetter(lookup, type, field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
+        int idIndex = columnIndexByName.getOrDefault(LazyLoader.ID_COLUMN, 0);
+
+        int propertyCount = count;
+        MapperFactory<T> factory = lazyLoader -> rs -> {
+            try {
+                Object bean = constructor.invokeExact();
+                for (int i = 0; i < propertyCount; i++) {
+                    setters[i].invokeExact(bean, readers[i].read(rs, columnIndexes[i]));
+                }
+                for (int i = 0; i < lazyColumns.length; i++) {
+                    lazySetters[i].invokeExact(bean, (Object) deferred(lazyLoader, lazyColumns[i], lazyReaders[i], rs, idIndex));
+                }
+                @SuppressWarnings("unchecked")
+                T result = (T) bean;
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+        if (lazyColumns.length > 0) return factory;
+        // Lazy 가 없으면 로더와 상관없이 매퍼 하나를 같이 씀
+        RowMapper<T> rowMapper = factory.create(null);
+        return lazyLoader -> rowMapper;
+    }
+
+    private static <T> MapperFactory<T> createForRecord(Class<T> type, List<String> columnLabels) throws ReflectiveOperationException {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] parameterTypes = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+        MethodHandle constructor = MethodHandles.privateLookupIn(type, LOOKUP)
+                .findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                .asSpreader(Object[].class, components.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+
+        Map<String, Integer> columnIndexByName = columnIndexByName(columnLabels);
+
+        // 컬럼이 없는 컴포넌트는 인덱스 0 → 기본값 (Lazy 면 나중에 읽는 Lazy)
+        int[] columnIndexes = new int[components.length];
+        ColumnReader[] readers = new ColumnReader[components.length];
+        Object[] defaults = new Object[components.length];
+        boolean[] deferred = new boolean[components.length];
+        boolean hasDeferred = false;
+        for (int i = 0; i < components.length; i++) {
+            columnIndexes[i] = columnIndexByName.getOrDefault(normalize(components[i].getName()), 0);
+            if (parameterTypes[i] == Lazy.class) {
+                ColumnReader valueReader = ColumnReader.of(lazyValueType(components[i].getGenericType()));
+                deferred[i] = columnIndexes[i] == 0;
+                hasDeferred |= deferred[i];
+                readers[i] = deferred[i] ? valueReader : loaded(valueReader);
+            } else {
+                readers[i] = ColumnReader.of(parameterTypes[i]);
+            }
+            defaults[i] = defaultValue(parameterTypes[i]);
+        }
+        int idIndex = columnIndexByName.getOrDefault(LazyLoader.ID_COLUMN, 0);
+
+        MapperFactory<T> factory = lazyLoader -> rs -> {
+            Object[] args = new Object[columnIndexes.length];
+            for (int i = 0; i < args.length; i++) {
+                if (deferred[i]) args[i] = deferred(lazyLoader, components[i].getName(), readers[i], rs, idIndex);
+                else args[i] = columnIndexes[i] == 0 ? defaults[i] : readers[i].read(rs, columnIndexes[i]);
+            }
+            try {
+                @SuppressWarnings("unchecked")
+                T result = (T) constructor.invokeExact(args);
+                return result;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+        if (hasDeferred) return factory;
+        RowMapper<T> rowMapper = factory.create(null);
+        return lazyLoader -> rowMapper;
+    }
+
+    // 정규화한 이름 → 필드 (상위 클래스 포함, 하위 클래스 필드가 우선)
+    private static Map<String, Field> fields(Class<?> type) {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                fields.putIfAbsent(normalize(field.getName()), field);
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, Integer> columnIndexByName(List<String> columnLabels) {
+        Map<String, Integer> columnIndexByName = new HashMap<>();
+        for (int i = 0; i < columnLabels.size(); i++) {
+            columnIndexByName.putIfAbsent(normalize(columnLabels.get(i)), i + 1);
+        }
+        return columnIndexByName;
+    }
+
+    // Lazy<T> 의 T (알 수 없으면 Object)
+    private static Class<?> lazyValueType(Type type) {
+        if (type instanceof ParameterizedType parameterized && parameterized.getActualTypeArguments()[0] instanceof Class<?> valueType)
+            return valueType;
+        return Object.class;
+    }
+
+    // 결과에 있는 컬럼은 바로 읽어서 Lazy 로 감쌈
+    private static ColumnReader loaded(ColumnReader valueReader) {
+        return (rs, i) -> Lazy.of(valueReader.read(rs, i));
+    }
+
+    private static Lazy<?> deferred(LazyLoader lazyLoader, String column, ColumnReader reader, ResultSet rs, int idIndex) throws SQLException {
+        if (lazyLoader == null || idIndex == 0) return Lazy.unavailable(column);
+        return lazyLoader.defer(column, reader, rs.getObject(idIndex));
+    }
+
+    // setXxx 를 먼저 찾고, boolean isXxx 필드는 Lombok 처럼 setXxx(is 제외)도 찾아봄, 없으면 필드에 직접 대입
+    private static MethodHandle findSetter(MethodHandles.Lookup lookup, Class<?> type, Field field) throws IllegalAccessException {
+        String name = field.getName();
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        try {
+            return lookup.findVirtual(type, "set" + capitalized, MethodType.methodType(void.class, field.getType()));
+        } catch (NoSuchMethodException ignored) {
+        }
+
+        boolean isBooleanIsField = (field.getType() == boolean.class || field.getType() == Boolean.class)
+                && name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2));
+        if (isBooleanIsField) {
+            try {
+                return lookup.findVirtual(type, "set" + name.substring(2), MethodType.methodType(void.class, field.getType()));
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+
+        return lookup.unreflectSetter(field);
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase();
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0d;
+        if (type == float.class) return 0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return 0;
+    }
+
+    // 대상 타입에 맞는 ResultSet getter 를 미리 골라둠 (getObject 후 변환하는 것보다 빠름)
+    // LazyLoader 가 나중에 읽을 때도 같은 getter 를 씀
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet rs, int index) throws SQLException;
+
+        static ColumnReader of(Class<?> type) {
+            if (type == long.class) return ResultSet::getLong;
+            if (type == int.class) return ResultSet::getInt;
+            if (type == boolean.class) return ResultSet::getBoolean;
+            if (type == double.class) return ResultSet::getDouble;
+            if (type == float.class) return ResultSet::getFloat;
+            if (type == short.class) return ResultSet::getShort;
+            if (type == byte.class) return ResultSet::getByte;
+            if (type == Long.class) return nullable(ResultSet::getLong);
+            if (type == Integer.class) return nullable(ResultSet::getInt);
+            if (type == Boolean.class) return nullable(ResultSet::getBoolean);
+            if (type == Double.class) return nullable(ResultSet::getDouble);
+            if (type == Float.class) return nullable(ResultSet::getFloat);
+            if (type == Short.class) return nullable(ResultSet::getShort);
+            if (type == Byte.class) return nullable(ResultSet::getByte);
+            if (type == String.class) return ResultSet::getString;
+            if (type == BigDecimal.class) return ResultSet::getBigDecimal;
+            if (type == byte[].class) return ResultSet::getBytes;
+            if (type == Reader.class) return ResultSet::getCharacterStream;
+            if (type == InputStream.class) return ResultSet::getBinaryStream;
+            if (type == LocalDateTime.class) return (rs, i) -> rs.getObject(i, LocalDateTime.class);
+            if (type == LocalDate.class) return (rs, i) -> rs.getObject(i, LocalDate.class);
+            if (type == LocalTime.class) return (rs, i) -> rs.getObject(i, LocalTime.class);
+            if (type.isEnum()) return enumReader(type);
+            return (rs, i) -> rs.getObject(i, type);
+        }
+
+        // 원시 타입 getter 는 NULL 을 0/false 로 돌려주므로 wasNull 로 한 번 더 확인
+        private static ColumnReader nullable(ColumnReader reader) {
+            return (rs, i) -> {
+                Object value = reader.read(rs, i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static ColumnReader enumReader(Class<?> type) {
+            Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+            return (rs, i) -> {
+                String value = rs.getString(i);
+                return value == null ? null : Enum.valueOf(enumType, value);
+            };
+        }
+    }
+
+    // 매퍼는 (클래스, 컬럼 구성) 마다 캐시하고, Lazy 를 채울 로더만 조회마다 다름
+    @FunctionalInterface
+    private interface MapperFactory<T> {
+        RowMapper<T> create(LazyLoader lazyLoader);
+    }
+
+    private record MapperKey(Class<?> type, List<String> columnLabels) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.back.simpleDb;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// 여러 샤드에 나눠 보낸 쿼리 한 번의 기록
+// elapsedNanos: 보내기 시작해서 모든 샤드의 결과를 받을 때까지 (스트림은 모든 샤드에서 결과셋을 열 때까지)
+// shardElapsedNanos: 샤드 번호별 실행 시간 (실행하지 못한 샤드는 -1)
+public record ScatterGatherEvent(
+        String sql,
+        long elapsedNanos,
+        long[] shardElapsedNanos,
+        Throwable error
+) {
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    // 가장 늦게 끝난 샤드의 실행 시간 (전체 시간과의 차이는 대기열/합치는 시간)
+    public long getSlowestShardNanos() {
+        return Arrays.stream(shardElapsedNanos).max().orElse(0);
+    }
+
+    public String getNormalizedSql() {
+        return SqlTables.shape(sql);
+    }
+}
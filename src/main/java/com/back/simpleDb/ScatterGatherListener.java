@@ -0,0 +1,8 @@
+package com.back.simpleDb;
+
+// ShardedSimpleDb 가 모든 샤드에 보낸 쿼리를 마칠 때마다 호출됨
+// 호출하는 스레드에서 바로 실행되므로 오래 걸리는 작업은 하지 말 것
+@FunctionalInterface
+public interface ScatterGatherListener {
+    void onScatterGather(ScatterGatherEvent event);
+}
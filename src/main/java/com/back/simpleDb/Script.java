@@ -0,0 +1,286 @@
+package com.back.simpleDb;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// 여러 문장을 커넥션 하나로 몰아서 실행 (스키마 생성, 마이그레이션, 테스트 데이터 적재)
+// Script.Result result = simpleDb.script()
+//         .add("DROP TABLE IF EXISTS article")
+//         .add("CREATE TABLE article (...)")
+//         .add("INSERT INTO article SET title = ?", "제목1")
+//         .add("INSERT INTO article SET title = ?", "제목2")
+//         .execute();
+// simpleDb.runScript("DROP TABLE IF EXISTS article; CREATE TABLE article (...);");
+// - 파라미터 없는 쓰기 문장이 이어지면 Statement 배치 하나로 보냄
+//   MySQL Connector/J 는 rewriteBatchedStatements=true (SimpleDb 가 켜둠) 이고 배치 문장이 5개 이상 (4개 초과) 일 때만
+//   배치를 a; b; c 로 합쳐서 보냄 (max_allowed_packet 을 넘으면 여러 번에 나눠서)
+//   이때 드라이버가 그 배치 동안만 세션의 multi-statements 를 켰다가 끄므로 allowMultiQueries 를 풀 전체에 켤 필요는 없음
+//   4개 이하면 드라이버가 문장마다 따로 보내므로 왕복도 문장 수만큼임
+// - 같은 SQL 에 파라미터만 다른 문장이 이어지면 PreparedStatement 배치 하나로 보냄 (Batch 와 같음)
+// - SELECT 는 하나씩 실행해서 행을 돌려줌
+// 실패하면 몇 번째 문장인지 ScriptException 으로 알려줌 (그 앞의 문장은 이미 실행됨)
+// 트랜잭션 밖이면 문장마다 커밋되므로 한꺼번에 되돌려야 하면 트랜잭션 안에서 실행할 것
+public class Script {
+    private final SimpleDb simpleDb;
+    private final Transaction transaction;
+    private final List<Entry> entries = new ArrayList<>();
+
+    Script(SimpleDb simpleDb, Transaction transaction) {
+        this.simpleDb = simpleDb;
+        this.transaction = transaction;
+    }
+
+    public Script add(String sql, Object... params) {
+        entries.add(new Entry(sql, params == null ? new Object[0] : params));
+        return this;
+    }
+
+    public Script addAll(List<String> statements) {
+        for (String sql : statements) add(sql);
+        return this;
+    }
+
+    // ; 로 나눠서 추가 (따옴표, 주석 안의 ; 는 무시, DELIMITER 는 지원하지 않음)
+    public Script addScript(String script) {
+        return addAll(split(script));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Result execute() {
+        List<StatementResult> results = new ArrayList<>(entries.size());
+        if (entries.isEmpty()) return new Result(results);
+
+        PooledConnection pc = simpleDb.borrowConnection(transaction);
+        try {
+            int from = 0;
+            while (from < entries.size()) {
+                Entry entry = entries.get(from);
+                int to;
+                if (SqlTables.isRead(entry.sql())) {
+                    to = from + 1;
+                    results.add(select(pc, from));
+                } else if (entry.params().length == 0) {
+                    to = groupEnd(from, e -> e.params().length == 0 && !SqlTables.isRead(e.sql()));
+                    results.addAll(executeStatements(pc, from, to));
+                } else {
+                    to = groupEnd(from, e -> e.params().length > 0 && e.sql().equals(entry.sql()));
+                    results.addAll(executePrepared(pc, from, to));
+                }
+                from = to;
+            }
+        } finally {
+            simpleDb.releaseConnection(transaction, pc);
+        }
+        return new Result(results);
+    }
+
+    private int groupEnd(int from, Predicate<Entry> sameGroup) {
+        int to = from + 1;
+        while (to < entries.size() && sameGroup.test(entries.get(to))) to++;
+        return to;
+    }
+
+    private StatementResult select(PooledConnection pc, int index) {
+        Entry entry = entries.get(index);
+        QueryTimer timer = new QueryTimer(entry.sql(), Arrays.asList(entry.params()));
+        timer.connectionAcquired();
+        StatementCache statementCache = pc.getStatementCache();
+        Throwable error = null;
+        try {
+            PreparedStatement ps = statementCache.prepare(entry.sql(), false);
+            timer.statementPrepared(statementCache.isLastPrepareHit());
+            try {
+                simpleDb.getParamBinders().bind(ps, entry.sql(), entry.params());
+                List<Map<String, Object>> rows = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    RowMapper<Map<String, Object>> rowMapper = Sql.mapRowToMap(rs);
+                    while (rs.next()) rows.add(rowMapper.mapRow(rs));
+                }
+                timer.completed(rows.size(), rows);
+                statementCache.release(ps, entry.sql(), false);
+                return new StatementResult(entry.sql(), -1, rows);
+            } catch (SQLException | RuntimeException e) {
+                statementCache.discard(ps, entry.sql(), false);
+                throw e;
+            }
+        } catch (SQLException e) {
+            markBrokenIfNeeded(pc, e);
+            ScriptException failed = new ScriptException(index, entry.sql(), e);
+            error = failed;
+            throw failed;
+        } finally {
+            simpleDb.afterQuery(timer, error);
+        }
+    }
+
+    // 파라미터 없는 쓰기 문장들을 Statement 배치 하나로
+    private List<StatementResult> executeStatements(PooledConnection pc, int from, int to) {
+        QueryTimer timer = new QueryTimer(entries.get(from).sql(), List.of());
+        timer.connectionAcquired();
+        Throwable error = null;
+        try (Statement statement = pc.getConnection().createStatement()) {
+            int[] counts;
+            if (to - from == 1) {
+                statement.execute(entries.get(from).sql());
+                counts = new int[]{Math.max(statement.getUpdateCount(), 0)};
+            } else {
+                for (int i = from; i < to; i++) statement.addBatch(entries.get(i).sql());
+                counts = statement.executeBatch();
+            }
+            timer.completed(total(counts), null);
+            return results(from, to, counts);
+        } catch (SQLException e) {
+            ScriptException failed = failed(pc, from, to, e);
+            error = failed;
+            throw failed;
+        } finally {
+            afterWrite(from, to, false);
+            simpleDb.afterQuery(timer, error);
+        }
+    }
+
+    // 같은 SQL, 다른 파라미터 문장들을 PreparedStatement 배치 하나로
+    private List<StatementResult> executePrepared(PooledConnection pc, int from, int to) {
+        String sql = entries.get(from).sql();
+        QueryTimer timer = new QueryTimer(sql, to - from == 1 ? Arrays.asList(entries.get(from).params()) : List.of());
+        timer.connectionAcquired();
+        StatementCache statementCache = pc.getStatementCache();
+        Throwable error = null;
+        try {
+            PreparedStatement ps = statementCache.prepare(sql, false);
+            timer.statementPrepared(statementCache.isLastPrepareHit());
+            try {
+                int[] counts;
+                if (to - from == 1) {
+                    simpleDb.getParamBinders().bind(ps, sql, entries.get(from).params());
+                    counts = new int[]{ps.executeUpdate()};
+                } else {
+                    for (int i = from; i < to; i++) {
+                        simpleDb.getParamBinders().bind(ps, sql, entries.get(i).params());
+                        ps.addBatch();
+                    }
+                    counts = ps.executeBatch();
+                }
+                timer.completed(total(counts), null);
+                statementCache.release(ps, sql, false);
+                return results(from, to, counts);
+            } catch (SQLException | RuntimeException e) {
+                statementCache.discard(ps, sql, false);
+                throw e;
+            }
+        } catch (SQLException e) {
+            ScriptException failed = failed(pc, from, to, e);
+            error = failed;
+            throw failed;
+        } finally {
+            afterWrite(from, to, true);
+            simpleDb.afterQuery(timer, error);
+        }
+    }
+
+    // 배치가 실패하면 드라이버가 돌려준 영향 행 수로 실패한 문장을 찾음
+    // (EXECUTE_FAILED 가 처음 나온 곳, 없으면 결과가 끊긴 바로 다음 문장)
+    private ScriptException failed(PooledConnection pc, int from, int to, SQLException e) {
+        markBrokenIfNeeded(pc, e);
+        int index = from;
+        if (e instanceof BatchUpdateException batchError && batchError.getUpdateCounts() != null) {
+            int[] counts = batchError.getUpdateCounts();
+            int offset = counts.length;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) {
+                    offset = i;
+                    break;
+                }
+            }
+            index = Math.min(from + offset, to - 1);
+        }
+        return new ScriptException(index, entries.get(index).sql(), e);
+    }
+
+    // 캐시 무효화 (실패해도 앞쪽 문장은 실행됐을 수 있으므로 묶음 전체)
+    private void afterWrite(int from, int to, boolean sameSql) {
+        if (sameSql) {
+            simpleDb.afterWrite(entries.get(from).sql(), to - from == 1 ? Arrays.asList(entries.get(from).params()) : null, transaction);
+            return;
+        }
+        for (int i = from; i < to; i++) simpleDb.afterWrite(entries.get(i).sql(), List.of(), transaction);
+    }
+
+    private List<StatementResult> results(int from, int to, int[] counts) {
+        List<StatementResult> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int count = i - from < counts.length ? counts[i - from] : Statement.SUCCESS_NO_INFO;
+            results.add(new StatementResult(entries.get(i).sql(), count, null));
+        }
+        return results;
+    }
+
+    private static long total(int[] counts) {
+        return Arrays.stream(counts).filter(c -> c > 0).asLongStream().sum();
+    }
+
+    private static void markBrokenIfNeeded(PooledConnection pc, SQLException e) {
+        if (e.getSQLState() != null && e.getSQLState().startsWith("08")) pc.markBroken();
+    }
+
+    // ; 기준으로 나눔 (따옴표 '...', "...", `...` 와 주석 --, #, /* */ 안은 건너뜀)
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean hasCode = false;
+        int length = script.length();
+        for (int i = 0; i < length; i++) {
+            char c = script.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = SqlTemplate.skipQuoted(script, i, c);
+                current.append(script, i, end);
+                hasCode = true;
+                i = end - 1;
+            } else if ((c == '-' && script.startsWith("-- ", i)) || c == '#') {
+                int end = script.indexOf('\n', i);
+                i = (end < 0 ? length : end) - 1;
+            } else if (c == '/' && script.startsWith("/*", i)) {
+                int end = script.indexOf("*/", i + 2);
+                i = (end < 0 ? length : end + 2) - 1;
+            } else if (c == ';') {
+                if (hasCode) statements.add(current.toString().strip());
+                current.setLength(0);
+                hasCode = false;
+            } else {
+                current.append(c);
+                if (!Character.isWhitespace(c)) hasCode = true;
+            }
+        }
+        if (hasCode) statements.add(current.toString().strip());
+        return statements;
+    }
+
+    private record Entry(String sql, Object[] params) {
+    }
+
+    // updateCount: 쓰기 문장의 영향받은 행 수 (드라이버가 알려주지 않으면 Statement.SUCCESS_NO_INFO(-2)), 조회면 -1
+    // rows: 조회 결과, 쓰기면 null
+    public record StatementResult(String sql, long updateCount, List<Map<String, Object>> rows) {
+    }
+
+    public record Result(List<StatementResult> statements) {
+        public StatementResult get(int index) {
+            return statements.get(index);
+        }
+
+        public long getTotalAffected() {
+            return statements.stream().mapToLong(StatementResult::updateCount).filter(c -> c > 0).sum();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.back.simpleDb;
+
+// Script 실행 중 실패한 문장
+// statementIndex 는 0 부터, 그 앞의 문장들은 이미 실행됨 (트랜잭션 밖이면 커밋까지 됨)
+public class ScriptException extends RuntimeException {
+    private final int statementIndex;
+    private final String sql;
+
+    ScriptException(int statementIndex, String sql, Throwable cause) {
+        super("스크립트 %d번째 문장 실행 실패: %s".formatted(statementIndex + 1, sql), cause);
+        this.statementIndex = statementIndex;
+        this.sql = sql;
+    }
+
+    public int getStatementIndex() {
+        return statementIndex;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+}
@@ -0,0 +1,173 @@
+package com.back.simpleDb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// ShardedSql 의 SQL 에서 샤드 결과를 합치는 데 필요한 부분(ORDER BY, LIMIT, 집계)을 읽고 샤드에 보낼 SQL 을 만듦
+// - ORDER BY 는 그대로 보내고 (샤드마다 정렬된 결과) 받은 쪽에서 k-way 병합
+//   정렬 컬럼은 결과에 있는 컬럼 이름이어야 함 (식, RAND() 등은 지원하지 않음)
+// - LIMIT n OFFSET m 은 샤드마다 LIMIT n + m 으로 보내고, 합친 뒤 m 개를 건너뛰고 n 개만 씀
+// - SELECT COUNT/SUM/MIN/MAX(...) FROM ... 한 값짜리 집계는 샤드별 값을 더하거나 최소/최대를 구함 (GROUP BY 는 제외)
+// 파서가 아니라 정규식이므로 SQL 맨 끝의 ORDER BY/LIMIT 만 봄
+final class ShardQuery {
+    private static final Pattern ORDER_BY = Pattern.compile("\\bORDER\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LIMIT = Pattern.compile(
+            "\\bLIMIT\\s+(\\d+|\\?)(?:\\s*(,|OFFSET)\\s*(\\d+|\\?))?\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ORDER_KEY = Pattern.compile("`?(?:\\w+`?\\.`?)?(\\w+)`?(?:\\s+(ASC|DESC))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern AGGREGATE = Pattern.compile(
+            "^\\s*SELECT\\s+(COUNT|SUM|MIN|MAX)\\s*\\([^()]*\\)\\s*(?:(?:AS\\s+)?`?\\w+`?\\s+)?FROM\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern GROUP_BY = Pattern.compile("\\bGROUP\\s+BY\\b", Pattern.CASE_INSENSITIVE);
+
+    private final String shardSql;
+    private final List<Object> shardParams;
+    private final List<OrderKey> orderBy;
+    private final long offset;
+    // 없으면 -1
+    private final long limit;
+    // COUNT/SUM/MIN/MAX, 집계가 아니면 null
+    private final String aggregate;
+
+    private ShardQuery(String shardSql, List<Object> shardParams, List<OrderKey> orderBy, long offset, long limit, String aggregate) {
+        this.shardSql = shardSql;
+        this.shardParams = shardParams;
+        this.orderBy = orderBy;
+        this.offset = offset;
+        this.limit = limit;
+        this.aggregate = aggregate;
+    }
+
+    static ShardQuery parse(String sql, List<Object> params) {
+        String statement = sql.strip();
+        if (statement.endsWith(";")) statement = statement.substring(0, statement.length() - 1).stripTrailing();
+        List<Object> shardParams = new ArrayList<>(params);
+
+        long offset = 0;
+        long limit = -1;
+        Matcher limitMatcher = LIMIT.matcher(statement);
+        if (limitMatcher.find()) {
+            String first = limitMatcher.group(1);
+            String separator = limitMatcher.group(2);
+            String second = limitMatcher.group(3);
+            // LIMIT 의 ? 는 맨 뒤 파라미터들
+            int placeholders = ("?".equals(first) ? 1 : 0) + ("?".equals(second) ? 1 : 0);
+            List<Object> limitParams = new ArrayList<>(shardParams.subList(shardParams.size() - placeholders, shardParams.size()));
+            shardParams.subList(shardParams.size() - placeholders, shardParams.size()).clear();
+
+            long firstValue = value(first, limitParams);
+            if (separator == null) {
+                limit = firstValue;
+            } else if (separator.equals(",")) {
+                offset = firstValue;
+                limit = value(second, limitParams);
+            } else {
+                limit = firstValue;
+                offset = value(second, limitParams);
+            }
+            statement = statement.substring(0, limitMatcher.start()).stripTrailing();
+        }
+
+        List<OrderKey> orderBy = List.of();
+        int orderByStart = lastTopLevel(ORDER_BY, statement);
+        if (orderByStart >= 0) {
+            Matcher orderByMatcher = ORDER_BY.matcher(statement);
+            orderByMatcher.find(orderByStart);
+            orderBy = orderKeys(statement.substring(orderByMatcher.end()));
+        }
+
+        String shardSql = limit < 0 ? statement : statement + " LIMIT " + (offset + limit);
+        String aggregate = null;
+        Matcher aggregateMatcher = AGGREGATE.matcher(statement);
+        if (aggregateMatcher.find() && !GROUP_BY.matcher(statement).find()) {
+            aggregate = aggregateMatcher.group(1).toUpperCase(Locale.ROOT);
+        }
+        return new ShardQuery(shardSql, shardParams, orderBy, offset, limit, aggregate);
+    }
+
+    String getShardSql() {
+        return shardSql;
+    }
+
+    List<Object> getShardParams() {
+        return shardParams;
+    }
+
+    List<OrderKey> getOrderBy() {
+        return orderBy;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    String getAggregate() {
+        return aggregate;
+    }
+
+    // 정렬 컬럼 값 배열 비교 (MySQL 처럼 NULL 이 가장 작음)
+    Comparator<Object[]> keyComparator() {
+        return (a, b) -> {
+            for (int i = 0; i < orderBy.size(); i++) {
+                int result = compare(a[i], b[i]);
+                if (result != 0) return orderBy.get(i).descending() ? -result : result;
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object a, Object b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : -1) : 1;
+        if (a instanceof Number x && b instanceof Number y && a.getClass() != b.getClass())
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        return ((Comparable) a).compareTo(b);
+    }
+
+    private static long value(String token, List<Object> limitParams) {
+        if (!"?".equals(token)) return Long.parseLong(token);
+        Object value = limitParams.remove(0);
+        if (!(value instanceof Number number)) throw new IllegalArgumentException("LIMIT 값은 숫자여야 합니다: " + value);
+        return number.longValue();
+    }
+
+    // 괄호 밖에서 마지막으로 나온 위치, 없으면 -1
+    private static int lastTopLevel(Pattern pattern, String sql) {
+        Matcher matcher = pattern.matcher(sql);
+        int found = -1;
+        while (matcher.find()) {
+            if (depth(sql, matcher.start()) == 0) found = matcher.start();
+        }
+        return found;
+    }
+
+    private static int depth(String sql, int end) {
+        int depth = 0;
+        for (int i = 0; i < end; i++) {
+            char c = sql.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+        return depth;
+    }
+
+    private static List<OrderKey> orderKeys(String clause) {
+        List<OrderKey> keys = new ArrayList<>();
+        for (String part : clause.split(",")) {
+            Matcher matcher = ORDER_KEY.matcher(part.strip());
+            if (!matcher.matches())
+                throw new IllegalArgumentException("샤드 결과를 합칠 수 없는 ORDER BY 입니다 (컬럼 이름만 가능): " + clause.strip());
+            keys.add(new OrderKey(matcher.group(1), "DESC".equalsIgnoreCase(matcher.group(2))));
+        }
+        return keys;
+    }
+
+    record OrderKey(String column, boolean descending) {
+    }
+}
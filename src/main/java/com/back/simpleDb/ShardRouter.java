@@ -0,0 +1,14 @@
+package com.back.simpleDb;
+
+// 샤드 키 → 샤드 번호 (0 ~ shardCount - 1)
+@FunctionalInterface
+public interface ShardRouter {
+    // 정수 키는 나머지, 그 밖의 키는 hashCode 의 나머지
+    ShardRouter MODULO = (shardKey, shardCount) -> {
+        if (shardKey instanceof Long || shardKey instanceof Integer || shardKey instanceof Short || shardKey instanceof Byte)
+            return (int) Math.floorMod(((Number) shardKey).longValue(), (long) shardCount);
+        return Math.floorMod(shardKey.hashCode(), shardCount);
+    };
+
+    int shardFor(Object shardKey, int shardCount);
+}
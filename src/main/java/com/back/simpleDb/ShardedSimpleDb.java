@@ -0,0 +1,150 @@
+package com.back.simpleDb;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// 같은 스키마를 가진 여러 DB(샤드)를 하나처럼 쓰는 파사드
+// ShardedSimpleDb db = new ShardedSimpleDb(List.of(shard0, shard1, shard2));
+// db.genSql(articleId).append("SELECT * FROM article WHERE id = ?", articleId).selectRow(Article.class); // 샤드 키로 한 샤드에만
+// db.genSql().append("SELECT * FROM article ORDER BY id DESC LIMIT 10").selectRows();                  // 모든 샤드에 보내고 합침
+// - 샤드 키 → 샤드는 ShardRouter (기본은 정수 키의 나머지)
+// - 샤드 키가 없는 쿼리(ShardedSql)는 executor 에서 모든 샤드에 동시에 보내고 결과를 합침 (ShardQuery 참고)
+//   한 샤드가 실패하면 나머지 샤드의 쿼리를 취소하고 그 예외를 던짐
+// - 샤드마다 SimpleDb 이므로 풀, 캐시, 메트릭 설정은 샤드별로 함
+// 여러 샤드에 걸친 트랜잭션은 없음 (샤드 안의 트랜잭션은 shard(key) 의 SimpleDb 로)
+@Slf4j
+public class ShardedSimpleDb implements AutoCloseable {
+    @Getter
+    private final List<SimpleDb> shards;
+    // 샤드에 동시에 보내는 쿼리용 (스레드 수, 대기열 크기가 정해져 있음)
+    @Getter
+    private final QueryExecutor executor = new QueryExecutor();
+    @Getter
+    private ShardRouter router = ShardRouter.MODULO;
+    private final List<ScatterGatherListener> listeners = new CopyOnWriteArrayList<>();
+
+    public ShardedSimpleDb(List<SimpleDb> shards) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("샤드가 비어있습니다.");
+        this.shards = List.copyOf(shards);
+    }
+
+    public void setRouter(ShardRouter router) {
+        this.router = router;
+    }
+
+    public SimpleDb shard(Object shardKey) {
+        if (shardKey == null) throw new IllegalArgumentException("샤드 키가 null 입니다.");
+        return shards.get(router.shardFor(shardKey, shards.size()));
+    }
+
+    // 샤드 키가 있는 쿼리는 그 샤드의 Sql 을 그대로 씀
+    public Sql genSql(Object shardKey) {
+        return shard(shardKey).genSql();
+    }
+
+    // 모든 샤드에 보내는 쿼리
+    public ShardedSql genSql() {
+        return new ShardedSql(this);
+    }
+
+    public void addScatterGatherListener(ScatterGatherListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeScatterGatherListener(ScatterGatherListener listener) {
+        listeners.remove(listener);
+    }
+
+    // 모든 샤드에서 query 를 동시에 실행하고 샤드 순서대로 결과를 돌려줌
+    // 샤드별 Sql 은 호출한 스레드에서 만들므로 그 스레드의 Deadline 이 그대로 적용됨
+    // 일부 샤드만 성공하고 실패하면 성공한 결과는 discard 로 정리함 (스트림 닫기 등)
+    <R> List<R> scatter(String sql, ShardQuery query, Function<Sql, R> action, Consumer<R> discard) {
+        int shardCount = shards.size();
+        List<Sql> sqls = new ArrayList<>(shardCount);
+        Object[] params = query.getShardParams().toArray();
+        for (SimpleDb shard : shards) sqls.add(shard.genSql().append(query.getShardSql(), params));
+
+        long startedAt = System.nanoTime();
+        long[] shardElapsedNanos = new long[shardCount];
+        Arrays.fill(shardElapsedNanos, -1);
+        List<CompletableFuture<R>> futures = new ArrayList<>(shardCount);
+        Throwable error = null;
+        try {
+            for (int i = 0; i < shardCount; i++) {
+                Sql shardSql = sqls.get(i);
+                int shard = i;
+                CompletableFuture<R> future = executor.supply(() -> {
+                    long shardStartedAt = System.nanoTime();
+                    try {
+                        return action.apply(shardSql);
+                    } finally {
+                        shardElapsedNanos[shard] = System.nanoTime() - shardStartedAt;
+                    }
+                });
+                future.whenComplete((result, e) -> {
+                    if (e != null) sqls.forEach(Sql::cancel);
+                });
+                futures.add(future);
+            }
+
+            // allOf 는 하나가 실패해도 전부 끝날 때까지 기다림
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            List<R> results = new ArrayList<>(shardCount);
+            for (CompletableFuture<R> future : futures) results.add(future.join());
+            return results;
+        } catch (CompletionException e) {
+            discardCompleted(futures, discard);
+            RuntimeException cause = e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            error = cause;
+            throw cause;
+        } catch (RuntimeException e) {
+            // executor 가 거절하면 이미 보낸 샤드 쿼리도 취소
+            sqls.forEach(Sql::cancel);
+            if (discard != null) futures.forEach(future -> future.thenAccept(discard));
+            error = e;
+            throw e;
+        } finally {
+            afterScatterGather(sql, startedAt, shardElapsedNanos, error);
+        }
+    }
+
+    private <R> void discardCompleted(List<CompletableFuture<R>> futures, Consumer<R> discard) {
+        if (discard == null) return;
+        for (CompletableFuture<R> future : futures) {
+            if (future.isCompletedExceptionally()) continue;
+            try {
+                discard.accept(future.join());
+            } catch (RuntimeException e) {
+                log.warn("샤드 결과 정리 실패", e);
+            }
+        }
+    }
+
+    private void afterScatterGather(String sql, long startedAt, long[] shardElapsedNanos, Throwable error) {
+        if (listeners.isEmpty()) return;
+        ScatterGatherEvent event = new ScatterGatherEvent(sql, System.nanoTime() - startedAt, shardElapsedNanos.clone(), error);
+        for (ScatterGatherListener listener : listeners) {
+            try {
+                listener.onScatterGather(event);
+            } catch (RuntimeException e) {
+                log.warn("샤드 쿼리 리스너 실행 실패", e);
+            }
+        }
+    }
+
+    // executor 와 모든 샤드를 닫음
+    @Override
+    public void close() {
+        executor.close();
+        shards.forEach(SimpleDb::close);
+    }
+}
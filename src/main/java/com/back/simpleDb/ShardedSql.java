@@ -0,0 +1,208 @@
+package com.back.simpleDb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// 모든 샤드에 보내는 쿼리 (ShardedSimpleDb.genSql())
+// 조회 결과는 샤드 순서대로 이어붙이고, ORDER BY 가 있으면 정렬 순서대로 병합, LIMIT/OFFSET 은 합친 결과에 적용 (ShardQuery 참고)
+// 스트림은 모든 샤드의 결과셋을 동시에 열어두고 한 행씩 병합하므로 결과 크기와 상관없이 메모리가 일정함 (닫아야 커넥션이 반납됨)
+// GROUP BY 결과는 샤드별 그룹을 그대로 이어붙임 (같은 그룹이 샤드마다 한 행씩 나올 수 있음)
+public class ShardedSql {
+    private final ShardedSimpleDb shardedDb;
+    private final SqlBuilder builder = new SqlBuilder();
+
+    ShardedSql(ShardedSimpleDb shardedDb) {
+        this.shardedDb = shardedDb;
+    }
+
+    public ShardedSql append(String sqlPart, Object... args) {
+        builder.append(sqlPart, args);
+        return this;
+    }
+
+    public ShardedSql appendIn(String sqlPart, Object... args) {
+        builder.appendIn(sqlPart, args);
+        return this;
+    }
+
+    public String getSql() {
+        return builder.getSql();
+    }
+
+    public List<Object> getParams() {
+        return builder.getParams();
+    }
+
+    public List<Map<String, Object>> selectRows() {
+        return gather(Sql::mapRowToMap);
+    }
+
+    public <T> List<T> selectRows(Class<T> clazz) {
+        return gather(rs -> RowMappers.forResultSet(clazz, rs));
+    }
+
+    public Map<String, Object> selectRow() {
+        List<Map<String, Object>> rows = selectRows();
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // try (Stream<Map<String, Object>> rows = shardedDb.genSql().append(...).stream()) { ... }
+    public Stream<Map<String, Object>> stream() {
+        return streamMerged(Sql::mapRowToMap);
+    }
+
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return streamMerged(rs -> RowMappers.forResultSet(clazz, rs));
+    }
+
+    // SELECT COUNT/SUM(...) 은 샤드별 값의 합, MIN/MAX 는 최소/최대 (NULL 인 샤드는 빼고)
+    public Long selectLong() {
+        ShardQuery query = ShardQuery.parse(getSql(), getParams());
+        String aggregate = query.getAggregate();
+        if (aggregate == null) throw new IllegalStateException("샤드 결과를 합칠 수 있는 집계(COUNT/SUM/MIN/MAX) 조회가 아닙니다.");
+
+        List<Long> values = shardedDb.scatter(getSql(), query, Sql::selectLong, null);
+        Long result = null;
+        for (Long value : values) {
+            if (value == null) continue;
+            if (result == null) result = value;
+            else result = switch (aggregate) {
+                case "MIN" -> Math.min(result, value);
+                case "MAX" -> Math.max(result, value);
+                default -> result + value;
+            };
+        }
+        return result == null && aggregate.equals("COUNT") ? 0L : result;
+    }
+
+    // 모든 샤드에서 실행하고 영향받은 행 수를 더함 (샤드마다 따로 커밋됨)
+    public int update() {
+        ShardQuery query = ShardQuery.parse(getSql(), getParams());
+        return shardedDb.scatter(getSql(), query, Sql::update, null).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public int delete() {
+        return update();
+    }
+
+    private <T> List<T> gather(Sql.RowMapperFactory<T> rowMapperFactory) {
+        ShardQuery query = ShardQuery.parse(getSql(), getParams());
+        List<List<Keyed<T>>> results = shardedDb.scatter(getSql(), query, sql -> sql.queryList(keyed(rowMapperFactory, query)), null);
+        List<Iterator<Keyed<T>>> iterators = new ArrayList<>(results.size());
+        for (List<Keyed<T>> result : results) iterators.add(result.iterator());
+        return merge(iterators, query).toList();
+    }
+
+    private <T> Stream<T> streamMerged(Sql.RowMapperFactory<T> rowMapperFactory) {
+        ShardQuery query = ShardQuery.parse(getSql(), getParams());
+        List<Stream<Keyed<T>>> streams = shardedDb.scatter(getSql(), query, sql -> sql.queryStream(keyed(rowMapperFactory, query)), Stream::close);
+        List<Iterator<Keyed<T>>> iterators = new ArrayList<>(streams.size());
+        for (Stream<Keyed<T>> stream : streams) iterators.add(stream.iterator());
+        return merge(iterators, query).onClose(() -> closeAll(streams));
+    }
+
+    // ORDER BY 가 없으면 샤드 순서대로 이어붙이고, 있으면 각 샤드의 다음 행 중 가장 앞선 것부터 꺼냄
+    private <T> Stream<T> merge(List<Iterator<Keyed<T>>> iterators, ShardQuery query) {
+        Iterator<Keyed<T>> merged = query.getOrderBy().isEmpty()
+                ? new ConcatIterator<>(iterators)
+                : new MergeIterator<>(iterators, query.keyComparator());
+        Stream<T> rows = StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .map(Keyed::row);
+        if (query.getOffset() > 0) rows = rows.skip(query.getOffset());
+        if (query.getLimit() >= 0) rows = rows.limit(query.getLimit());
+        return rows;
+    }
+
+    // 행과 함께 ORDER BY 컬럼 값을 읽음
+    private static <T> Sql.RowMapperFactory<Keyed<T>> keyed(Sql.RowMapperFactory<T> rowMapperFactory, ShardQuery query) {
+        return rs -> {
+            RowMapper<T> rowMapper = rowMapperFactory.create(rs);
+            List<ShardQuery.OrderKey> orderBy = query.getOrderBy();
+            int[] keyColumns = new int[orderBy.size()];
+            for (int i = 0; i < keyColumns.length; i++) keyColumns[i] = rs.findColumn(orderBy.get(i).column());
+            return row -> {
+                Object[] keys = new Object[keyColumns.length];
+                for (int i = 0; i < keys.length; i++) keys[i] = row.getObject(keyColumns[i]);
+                return new Keyed<>(keys, rowMapper.mapRow(row));
+            };
+        };
+    }
+
+    private static void closeAll(List<? extends Stream<?>> streams) {
+        RuntimeException error = null;
+        for (Stream<?> stream : streams) {
+            try {
+                stream.close();
+            } catch (RuntimeException e) {
+                if (error == null) error = e;
+                else error.addSuppressed(e);
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private record Keyed<T>(Object[] keys, T row) {
+    }
+
+    private static class ConcatIterator<T> implements Iterator<T> {
+        private final Iterator<Iterator<T>> iterators;
+        private Iterator<T> current;
+
+        ConcatIterator(List<Iterator<T>> iterators) {
+            this.iterators = iterators.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((current == null || !current.hasNext()) && iterators.hasNext()) current = iterators.next();
+            return current != null && current.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return current.next();
+        }
+    }
+
+    // 샤드마다 다음 행 하나씩만 들고 있음
+    private static class MergeIterator<T> implements Iterator<Keyed<T>> {
+        private final PriorityQueue<Head<T>> heads;
+
+        MergeIterator(List<Iterator<Keyed<T>>> iterators, Comparator<Object[]> keyComparator) {
+            // 정렬 값이 같으면 샤드 순서대로
+            Comparator<Head<T>> comparator = Comparator.<Head<T>, Object[]>comparing(head -> head.row.keys(), keyComparator)
+                    .thenComparingInt(head -> head.shard);
+            this.heads = new PriorityQueue<>(Math.max(iterators.size(), 1), comparator);
+            for (int i = 0; i < iterators.size(); i++) {
+                Iterator<Keyed<T>> iterator = iterators.get(i);
+                if (iterator.hasNext()) heads.add(new Head<>(i, iterator.next(), iterator));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public Keyed<T> next() {
+            Head<T> head = heads.poll();
+            if (head == null) throw new NoSuchElementException();
+            if (head.rest.hasNext()) heads.add(new Head<>(head.shard, head.rest.next(), head.rest));
+            return head.row;
+        }
+
+        private record Head<T>(int shard, Keyed<T> row, Iterator<Keyed<T>> rest) {
+        }
+    }
+}
@@ -1,94 +1,456 @@
 package com.back.simpleDb;
 
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+@Slf4j
 @Getter
-public class SimpleDb {
+public class SimpleDb implements AutoCloseable {
     private final String url;
     private final String username;
     private final String password;
-    private final ThreadLocal<Connection> threadLocalCon = new ThreadLocal<>();
+    private final ConnectionPool pool;
+    private final QueryExecutor queryExecutor = new QueryExecutor();
+    @Getter(AccessLevel.PACKAGE)
+    private final QueryWatchdog queryWatchdog = new QueryWatchdog();
+    // 설정하면 sql.cached() 로 표시한 조회 결과를 캐시함
+    private QueryResultCache resultCache;
+    // 설정하면 등록한 클래스의 id 조회 (selectRow(Class)) 결과를 캐시함
+    private EntityCache entityCache;
+    // 설정하면 트랜잭션 밖에서 동시에 들어온 같은 조회를 한 번만 실행함
+    private ReadCoalescer readCoalescer;
+    // 파라미터 바인딩에 쓸 레지스트리 (ParamBinders 참고), 기본은 모든 SimpleDb 가 같이 쓰는 ParamBinders.defaults()
+    private ParamBinders paramBinders = ParamBinders.defaults();
+    // startTransaction() 으로 시작한 트랜잭션을 찾기 위한 용도로만 씀
+    // genSql()/batch() 가 만들어질 때 한 번 읽어서 Sql/Batch 가 트랜잭션 핸들을 직접 들고 다님
+    // 트랜잭션 밖에서는 비어있고, 스레드(가상 스레드 포함)가 커넥션을 들고 있지 않음
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+    // true 면 실행한 쿼리를 전부 (파라미터, 실행 시간과 함께) 로그로 남김
     private boolean devMode = false;
+    // 이 시간 이상 걸린 쿼리는 파라미터와 함께 warn 로그, 0 이면 끔
+    private long slowQueryThresholdMillis = 1_000;
+    // Sql 에 timeout 을 주지 않았을 때의 기본 타임아웃 (커넥션 대여 대기 포함), 0 이면 없음
+    // Deadline 이 걸려 있으면 둘 중 먼저 오는 쪽을 씀
+    private long defaultQueryTimeoutMillis = 0;
+    @Getter(AccessLevel.NONE)
+    private final List<QueryListener> queryListeners = new CopyOnWriteArrayList<>();
+    // 결과 크기(QueryEvent.mappedBytes)가 필요한 리스너가 있는지
+    @Getter(AccessLevel.NONE)
+    private volatile boolean weighResults;
+    // Sql.stream() 에서 사용할 fetchSize
+    // MySQL 은 Integer.MIN_VALUE 이면 행 단위 스트리밍, useCursorFetch=true 와 양수를 주면 서버 커서로 n 행씩 가져옴
+    // 다른 드라이버는 음수를 받지 않으므로 양수 기본값을 씀
+    private int streamFetchSize;
+    // IN (?) 목록 개수를 2의 거듭제곱으로 맞춤 (SqlBuilder.bucketInLists 참고)
+    private boolean inListBucketing = true;
+    // 이보다 긴 IN 목록은 나눠서 여러 번 실행 (Sql.chunks 참고), 0 이면 나누지 않음
+    private int maxInListSize = 1_000;
+    // 읽기 전용 복제본 (addReplica), 없으면 모든 쿼리가 주 DB 로 감
+    @Getter(AccessLevel.NONE)
+    private final ReplicaRouter replicaRouter = new ReplicaRouter();
+    // 쓰기 후 이 시간 동안은 같은 스레드의 조회도 주 DB 에서 읽음 (복제 지연 때문에 방금 쓴 값이 안 보이는 것을 막음)
+    private long readYourWritesWindowMillis = 1_000;
+    // 스레드별 마지막 쓰기 시각 (System.nanoTime), 복제본이 있을 때만 기록
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<long[]> lastWriteAt = ThreadLocal.withInitial(() -> new long[]{Long.MIN_VALUE});
 
+    // host 에 포트가 없으면 3306
     public SimpleDb(String host, String username, String password, String dbName) {
-        this.url = "jdbc:mysql://" + host + ":3306/" + dbName + "?serverTimezone=UTC";
+        this(mysqlUrl(host, dbName), username, password);
+    }
+
+    // JDBC URL 을 직접 지정 (벤치마크/테스트에서 H2 같은 대체 DB 를 쓸 때)
+    public SimpleDb(String url, String username, String password) {
+        this.url = url;
         this.username = username;
         this.password = password;
+        this.pool = new ConnectionPool(url, username, password);
+
+        boolean mysql = url.startsWith("jdbc:mysql:");
+        this.streamFetchSize = mysql ? Integer.MIN_VALUE : 1_000;
+        // 배치 INSERT 를 multi-row VALUES 한 문장으로 합쳐서 보내도록 함 (Batch 참고)
+        // 모르는 속성을 거부하는 드라이버(H2 등)가 있어서 MySQL 일 때만 설정
+        if (mysql) pool.setJdbcProperty("rewriteBatchedStatements", "true");
+    }
+
+    //    getConnection() before
+//    스레드마다 DriverManager 로 커넥션을 하나씩 열어서 ThreadLocal 에 계속 들고 있었음
+//    → 스레드 수만큼 MySQL 세션이 생기고 새 스레드마다 TCP + 인증 핸드셰이크가 발생
+    //    getConnection() edited
+//    쿼리 실행 단위로 풀에서 빌리고 끝나면 반납 (Sql.execute 참고)
+//    트랜잭션 중이면 트랜잭션이 붙잡고 있는 커넥션을 쓰고, 반납은 commit/rollback 때 함
+    PooledConnection borrowConnection(Transaction tx) {
+        if (tx != null) return tx.connection();
+        return borrowAutoCommit(pool);
+    }
+
+    // replicaRead: 트랜잭션 밖의 조회라서 복제본으로 보내도 되는지 (Sql 이 판단)
+    // 복제본에서 빌리지 못하면 (다운, 대여 시간 초과 등) 주 DB 에서 읽음
+    PooledConnection borrowConnection(Transaction tx, boolean replicaRead) {
+        return borrowConnection(tx, replicaRead, null);
+    }
+
+    // deadline: 대여 대기 시간을 풀의 borrowTimeoutMillis 와 남은 기한 중 짧은 쪽으로 제한 (null 이면 풀 설정만)
+    PooledConnection borrowConnection(Transaction tx, boolean replicaRead, Deadline deadline) {
+        if (tx != null) return tx.connection();
+        if (!replicaRead) return borrowAutoCommit(pool, deadline);
+
+        ConnectionPool replica = replicaRouter.choose();
+        if (replica == null) return borrowAutoCommit(pool, deadline);
+        try {
+            return borrowAutoCommit(replica, deadline);
+        } catch (RuntimeException e) {
+            if (deadline != null && deadline.isExpired()) throw e;
+            log.warn("복제본({}) 커넥션을 빌리지 못해서 주 DB 에서 조회합니다.", replica.getUrl(), e);
+            return borrowAutoCommit(pool, deadline);
+        }
+    }
+
+    private PooledConnection borrowAutoCommit(ConnectionPool from) {
+        return borrowAutoCommit(from, null);
+    }
+
+    private PooledConnection borrowAutoCommit(ConnectionPool from, Deadline deadline) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(from.getBorrowTimeoutMillis());
+        if (deadline != null) timeoutNanos = Math.min(timeoutNanos, deadline.remainingNanos());
+        PooledConnection pc = from.borrow(timeoutNanos);
+        try {
+            // 이전 트랜잭션에서 꺼둔 autoCommit 은 여기서 필요할 때만 되돌림
+            pc.setAutoCommit(true);
+        } catch (SQLException e) {
+            pc.markBroken();
+            from.release(pc);
+            throw new RuntimeException(e);
+        }
+        return pc;
+    }
+
+    // 빌려온 풀(주 DB 또는 복제본)에 반납
+    void releaseConnection(Transaction tx, PooledConnection pc) {
+        if (tx != null && tx.owns(pc)) return;
+        pc.getPool().release(pc);
+    }
+
+    // 읽기 전용 복제본 추가, 계정은 주 DB 와 같음
+    // 돌려받은 풀로 복제본별 설정(maxSize 등)을 바꿀 수 있음
+    // simpleDb.addReplica("replica1:3306", "simpleDb__test");
+    public ConnectionPool addReplica(String host, String dbName) {
+        return addReplica(mysqlUrl(host, dbName));
+    }
+
+    public ConnectionPool addReplica(String url) {
+        ConnectionPool replica = new ConnectionPool(url, username, password);
+        replicaRouter.add(replica);
+        return replica;
+    }
+
+    public List<ConnectionPool> getReplicas() {
+        return Collections.unmodifiableList(replicaRouter.getReplicas());
+    }
+
+    public void setReplicaLoadBalancing(ReplicaLoadBalancing loadBalancing) {
+        replicaRouter.setLoadBalancing(loadBalancing);
+    }
+
+    public void setReadYourWritesWindowMillis(long readYourWritesWindowMillis) {
+        this.readYourWritesWindowMillis = readYourWritesWindowMillis;
     }
 
-    public Connection getConnection() {
-        Connection con = threadLocalCon.get();
-        if (con == null) {
+    // 지금 만드는 Sql 의 조회를 주 DB 에서 해야 하는지 (복제본이 없거나, 이 스레드가 방금 썼으면)
+    boolean isPrimaryReadRequired() {
+        if (replicaRouter.isEmpty()) return true;
+        long writtenAt = lastWriteAt.get()[0];
+        return writtenAt != Long.MIN_VALUE
+                && System.nanoTime() - writtenAt < TimeUnit.MILLISECONDS.toNanos(readYourWritesWindowMillis);
+    }
+
+    // read-your-writes 를 위해 이 스레드의 마지막 쓰기 시각을 기록 (트랜잭션은 커밋할 때)
+    void markWritten() {
+        if (!replicaRouter.isEmpty()) lastWriteAt.get()[0] = System.nanoTime();
+    }
+
+    private static String mysqlUrl(String host, String dbName) {
+        String hostAndPort = host.contains(":") ? host : host + ":3306";
+        return "jdbc:mysql://" + hostAndPort + "/" + dbName + "?serverTimezone=UTC";
+    }
+
+    Transaction getCurrentTransaction() {
+        return currentTransaction.get();
+    }
+
+    public boolean isInTransaction() {
+        return currentTransaction.get() != null;
+    }
+
+    public void startTransaction() {
+        startTransaction(null);
+    }
+
+    // 이미 트랜잭션 중이면 savepoint 로 중첩됨 (중첩 단계의 격리수준은 바깥 트랜잭션을 따름)
+    public void startTransaction(IsolationLevel isolationLevel) {
+        Transaction tx = currentTransaction.get();
+        if (tx != null) {
+            tx.beginNested();
+            return;
+        }
+        currentTransaction.set(new Transaction(this, isolationLevel));
+    }
+
+    // 스레드에 걸지 않은 트랜잭션 핸들
+    // 가상 스레드/비동기 작업 사이에서 넘겨 쓰거나, 여러 트랜잭션을 한 스레드에서 다룰 때 사용
+    // Transaction tx = simpleDb.beginTransaction();
+    // tx.genSql().append(...).insert();
+    // tx.commit();
+    public Transaction beginTransaction() {
+        return beginTransaction(null);
+    }
+
+    public Transaction beginTransaction(IsolationLevel isolationLevel) {
+        return new Transaction(this, isolationLevel);
+    }
+
+    public void commit() {
+        Transaction tx = requireTransaction();
+        try {
+            if (tx.commitCurrentLevel()) currentTransaction.remove();
+        } catch (RuntimeException e) {
+            // 중첩 단계의 savepoint 처리가 실패해도 바깥 트랜잭션은 아직 열려 있으므로 최상위가 끝났을 때만 뗌
+            if (tx.isFinished()) currentTransaction.remove();
+            throw e;
+        }
+    }
+
+    public void rollback() {
+        Transaction tx = requireTransaction();
+        try {
+            if (tx.rollbackCurrentLevel()) currentTransaction.remove();
+        } catch (RuntimeException e) {
+            // 중첩 단계의 savepoint 처리가 실패해도 바깥 트랜잭션은 아직 열려 있으므로 최상위가 끝났을 때만 뗌
+            if (tx.isFinished()) currentTransaction.remove();
+            throw e;
+        }
+    }
+
+    // 콜백이 예외 없이 끝나면 commit, 예외가 나면 rollback 후 다시 던짐
+    // simpleDb.inTransaction(db -> db.genSql().append(...).insert());
+    public <T> T inTransaction(Function<SimpleDb, T> callback) {
+        return inTransaction(null, callback);
+    }
+
+    public <T> T inTransaction(IsolationLevel isolationLevel, Function<SimpleDb, T> callback) {
+        startTransaction(isolationLevel);
+        T result;
+        try {
+            result = callback.apply(this);
+        } catch (RuntimeException | Error e) {
             try {
-                con = DriverManager.getConnection(url, username, password);
-                threadLocalCon.set(con);
-            } catch (SQLException e) {
-                throw new RuntimeException(e);
+                rollback();
+            } catch (RuntimeException rollbackError) {
+                e.addSuppressed(rollbackError);
             }
+            throw e;
         }
-        return con;
+        commit();
+        return result;
+    }
+
+    public void runInTransaction(Consumer<SimpleDb> callback) {
+        runInTransaction(null, callback);
     }
 
-//    run() before
-//        try (Connection conn = DriverManager.getConnection(url, username, password);
-//             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public void runInTransaction(IsolationLevel isolationLevel, Consumer<SimpleDb> callback) {
+        inTransaction(isolationLevel, db -> {
+            callback.accept(db);
+            return null;
+        });
+    }
+
+    private Transaction requireTransaction() {
+        Transaction tx = currentTransaction.get();
+        if (tx == null) throw new IllegalStateException("진행중인 트랜잭션이 없습니다.");
+        return tx;
+    }
 
+    //    run() before
+//    genSql().append(sql, params).update() 로 executeUpdate 를 써서 결과셋을 돌려주는 문장은 예외가 났음
     //    run() edited
-//    Connection은 try-with-resources에서 제외시킴
-//    이러면 커넥션은 계속 열려있고 쿼리 실행에 필요한 자원만 매번 정리됨
-//    ps 는 실수로 닫지 않는 경우를 방지하기위해 그냥 남겨둠
+//    원래처럼 execute() 로 실행 (Sql.run 참고)
     public void run(String sql, Object... params) {
-        Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (int i = 0; i < params.length; i++) {
-                pstmt.setObject(i + 1, params[i]);
-            }
-            pstmt.execute();
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+        genSql().append(sql, params).run();
     }
 
     public Sql genSql() {
-        return new Sql(getConnection());
+        return new Sql(this);
+    }
+
+    // 미리 파싱해둔 템플릿으로 시작 (SqlTemplate 참고)
+    public Sql genSql(SqlTemplate template, Object... params) {
+        return new Sql(this, currentTransaction.get(), template.bindBucketed(inListBucketLimit(), params));
+    }
+
+    public Batch batch(String sql) {
+        return new Batch(this, currentTransaction.get(), sql);
+    }
+
+    // 여러 행을 한 문장으로 INSERT (BulkInsert 참고)
+    public BulkInsert insertInto(String table) {
+        return new BulkInsert(this, currentTransaction.get(), table);
+    }
+
+    // 여러 문장을 커넥션 하나로 몰아서 실행 (Script 참고)
+    public Script script() {
+        return new Script(this, currentTransaction.get());
+    }
+
+    // ; 로 구분한 여러 문장을 한 번에 실행
+    public Script.Result runScript(String script) {
+        return script().addScript(script).execute();
+    }
+
+    public Script.Result runAll(List<String> statements) {
+        return script().addAll(statements).execute();
     }
 
     public void setDevMode(boolean devMode) {
         this.devMode = devMode;
     }
 
-    //    closeConnection Before
-    // 테스트 코드 마지막에 @AfterAll 어노테이션을 이용해서 임시로 사용중
-//    질문 후 수정 예정
-//    public void closeConnection() {
-//        Connection con = threadLocalCon.get();
-//        if (con != null) {
-//            try {
-//                con.close();
-//            } catch (SQLException e) {
-//                throw new RuntimeException(e);
-//            } finally {
-//                threadLocalCon.remove();
-//            }
-//        }
-//    }
-
-//    closeConnection Edited
-//    Con.remove를 close보다 먼저 호출해서 close에서 예외가 발생해도 remove되도록 변경
-    public void closeConnection() {
-        Connection con = threadLocalCon.get();
-        if (con == null) return;
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
 
-        threadLocalCon.remove();
-        try {
-            con.close();
-        } catch (SQLException e) {
-            throw new RuntimeException("Connection close 실패", e);
+    public void setDefaultQueryTimeoutMillis(long defaultQueryTimeoutMillis) {
+        this.defaultQueryTimeoutMillis = defaultQueryTimeoutMillis;
+    }
+
+    public void addQueryListener(QueryListener listener) {
+        queryListeners.add(listener);
+        weighResults = queryListeners.stream().anyMatch(QueryListener::needsMappedBytes);
+    }
+
+    public void removeQueryListener(QueryListener listener) {
+        queryListeners.remove(listener);
+        weighResults = queryListeners.stream().anyMatch(QueryListener::needsMappedBytes);
+    }
+
+    // Sql/Batch 가 쿼리 실행을 마칠 때마다 호출
+    // 리스너가 없고 로그 대상도 아니면 시간만 비교하고 끝냄 (이벤트 객체를 만들지 않음)
+    void afterQuery(QueryTimer timer, Throwable error) {
+        long elapsedNanos = timer.elapsedNanos();
+        boolean slow = slowQueryThresholdMillis > 0 && elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        boolean hasListeners = !queryListeners.isEmpty();
+        if (!hasListeners && !slow && !devMode) return;
+
+        QueryEvent event = timer.toEvent(elapsedNanos, weighResults, error);
+        if (slow) {
+            log.warn("느린 쿼리 {}ms (풀 대기 {}ms, {}행): {} {}",
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), TimeUnit.NANOSECONDS.toMillis(event.poolWaitNanos()),
+                    event.rows(), event.sql(), event.params());
+        } else if (devMode) {
+            log.info("{}ms ({}행): {} {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), event.rows(), event.sql(), event.params());
+        }
+
+        for (QueryListener listener : queryListeners) {
+            try {
+                listener.onQuery(event);
+            } catch (RuntimeException e) {
+                // 리스너 오류로 쿼리 결과가 바뀌면 안 되므로 로그만 남김
+                log.warn("쿼리 리스너 실행 실패", e);
+            }
+        }
+    }
+
+    public void setInListBucketing(boolean inListBucketing) {
+        this.inListBucketing = inListBucketing;
+    }
+
+    public void setMaxInListSize(int maxInListSize) {
+        this.maxInListSize = maxInListSize;
+    }
+
+    int inListBucketLimit() {
+        return inListBucketing ? maxInListSize : 0;
+    }
+
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public void setEntityCache(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+
+    public void setReadCoalescer(ReadCoalescer readCoalescer) {
+        this.readCoalescer = readCoalescer;
+    }
+
+    public void setParamBinders(ParamBinders paramBinders) {
+        this.paramBinders = paramBinders;
+    }
+
+    // 쓰기 후 그 테이블을 읽은 캐시 결과와 바뀐 엔티티를 지움
+    // 트랜잭션 안의 쓰기는 커밋 전까지 다른 곳에서 옛 값을 다시 캐시할 수 있으므로 커밋 때 한 번 더 지움
+    // params 는 바뀐 id 를 알아내는 데 씀, null 이면 (배치 등) 엔티티 캐시에서 그 테이블 전체를 지움
+    void afterWrite(String sql, List<Object> params, Transaction tx) {
+        if (tx != null) tx.markWritten();
+        else markWritten();
+        if (entityCache != null) {
+            EntityCache.Invalidation invalidation = entityCache.invalidationFor(sql, params);
+            if (invalidation != null) {
+                if (tx != null) tx.recordEntityWrite(invalidation);
+                entityCache.invalidate(invalidation);
+            }
         }
+        if (resultCache == null && readCoalescer == null) return;
+        String table = SqlTables.writtenTable(sql);
+        if (tx != null) tx.recordWrite(table);
+        invalidateResultCache(table);
+    }
+
+    void invalidateEntityCache(EntityCache.Invalidation invalidation) {
+        if (entityCache != null) entityCache.invalidate(invalidation);
+    }
+
+    // table 이 null 이면 (어떤 테이블인지 모르면) 전부 지움
+    // 실행중인 같은 조회에 합류하는 것(ReadCoalescer)도 이 테이블을 읽는 조회는 여기까지만
+    void invalidateResultCache(String table) {
+        if (readCoalescer != null) readCoalescer.tableWritten(table);
+        if (resultCache == null) return;
+        if (table == null) resultCache.invalidateAll();
+        else resultCache.invalidateTable(table);
+    }
+
+    //    closeConnection edited
+//    트랜잭션 밖에서는 커넥션을 스레드에 묶어두지 않으므로 정리할 것이 없음
+//    끝내지 않은 트랜잭션이 남아있으면 롤백하고 커넥션을 풀에 반납
+    public void closeConnection() {
+        Transaction tx = currentTransaction.get();
+        if (tx == null) return;
+
+        currentTransaction.remove();
+        tx.rollbackAll();
+    }
+
+    // 풀 전체 종료 (애플리케이션/테스트 종료 시)
+    @Override
+    public void close() {
+        queryExecutor.close();
+        queryWatchdog.close();
+        pool.close();
+        replicaRouter.close();
     }
 }
@@ -1,23 +1,74 @@
 package com.back.simpleDb;
 
-import com.back.Article;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 public class Sql {
-    private final Connection connection;
+    private final SimpleDb simpleDb;
+    // 만들어질 때의 트랜잭션 (없으면 null)
+    // 실행 시점의 스레드와 상관없이 이 트랜잭션의 커넥션을 씀
+    private final Transaction transaction;
     private final SqlBuilder builder;
+    // cancel() 에서 실행중인 statement 를 취소하기 위해 실행하는 동안만 들고 있음
+    // 실행마다 새 Execution 을 쓰므로 늦게 도착한 취소는 이미 끝난 실행에 아무 일도 하지 않음
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Execution> running = new AtomicReference<>();
+    // IN 목록을 나눠서 실행할 때 실행중인 조각 (cancel() 을 넘겨주기 위해)
+    @Getter(AccessLevel.NONE)
+    private volatile Sql runningChunk;
+    @Getter(AccessLevel.NONE)
+    private volatile boolean cancelled;
+    private boolean cached;
+    private Duration cacheTtl;
+    // 복제본이 있어도 주 DB 에서 읽음 (만들 때 이 스레드가 방금 썼거나, onPrimary() 를 부른 경우)
+    private boolean readFromPrimary;
+    // 만들어질 때 스레드에 걸려 있던 기한 (Deadline.bind), deadline() 으로 바꿀 수 있음
+    private Deadline deadline;
+    // 실행마다 적용할 타임아웃, null 이면 SimpleDb.defaultQueryTimeoutMillis (Duration.ZERO 면 없음)
+    private Duration timeout;
 
-    public Sql(Connection connection) {
-        this.connection = connection;
-        this.builder = new SqlBuilder();
+    public Sql(SimpleDb simpleDb) {
+        this(simpleDb, simpleDb.getCurrentTransaction());
+    }
+
+    Sql(SimpleDb simpleDb, Transaction transaction) {
+        this(simpleDb, transaction, new SqlBuilder().bucketInLists(simpleDb.inListBucketLimit()));
+    }
+
+    // SqlTemplate.bind 로 만든 builder 로 시작
+    Sql(SimpleDb simpleDb, Transaction transaction, SqlBuilder builder) {
+        this.simpleDb = simpleDb;
+        this.transaction = transaction;
+        this.builder = builder;
+        this.readFromPrimary = simpleDb.isPrimaryReadRequired();
+        this.deadline = Deadline.current();
     }
 
     public Sql append(String sqlPart, Object... args) {
@@ -30,6 +81,18 @@ public class Sql {
         return this;
     }
 
+    // 커넥션 대여 대기부터 결과를 다 읽을 때까지의 시간 제한
+    // 넘으면 Statement.cancel() 로 취소하고 SQLTimeoutException 을 (RuntimeException 으로 감싸서) 던짐
+    public Sql timeout(Duration timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public Sql deadline(Deadline deadline) {
+        this.deadline = deadline;
+        return this;
+    }
+
     //예시로 남겨둔 코드(삭제예정)
 //    public long insert() {
 //        PreparedStatement ps = null;
@@ -49,29 +112,56 @@ public class Sql {
 //    }
 
     public long insert() {
-        return execute((ps) -> {
+        long id = execute((ps) -> {
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) return rs.getLong(1);
                 return 0L;
             }
         }, true);
+        simpleDb.afterWrite(getSql(), getParams(), transaction);
+        return id;
     }
 
     public int update() {
-        return execute(PreparedStatement::executeUpdate, false);
+        List<Sql> chunks = chunks();
+        if (chunks != null) {
+            int affectedRows = 0;
+            for (Sql chunk : chunks) affectedRows += runChunk(chunk, Sql::update);
+            return affectedRows;
+        }
+
+        int affectedRows = execute(PreparedStatement::executeUpdate, false);
+        simpleDb.afterWrite(getSql(), getParams(), transaction);
+        return affectedRows;
     }
 
     public int delete() {
         return update();
     }
 
+    // 결과 종류와 상관없이 실행 (SimpleDb.run)
+    // executeUpdate 와 달리 결과셋을 돌려주는 문장 (SHOW, CALL, SELECT 등) 도 실패하지 않음, 결과셋은 읽지 않고 닫음
+    public void run() {
+        execute((ps) -> {
+            if (!ps.execute()) return ps.getUpdateCount();
+            ps.getResultSet().close();
+            return 0;
+        }, false);
+        if (!SqlTables.isRead(getSql())) simpleDb.afterWrite(getSql(), getParams(), transaction);
+    }
+
     public List<Map<String, Object>> selectRows() {
-        return execute((ps) -> {
+        return read("rows", () -> queryList(Sql::mapRowToMap));
+    }
+
+    // 컬럼 단위 저장 (ResultTable 참고)
+    public ResultTable selectTable() {
+        return read("table", () -> execute((ps) -> {
             try (ResultSet rs = ps.executeQuery()) {
-                return mapResultSetToList(rs);
+                return ResultTable.from(rs);
             }
-        }, false);
+        }, false));
     }
 
     public Map<String, Object> selectRow() {
@@ -79,71 +169,443 @@ public class Sql {
         return rows.isEmpty() ? null : rows.get(0);
     }
 
+    //    selectLong/selectString/selectBoolean before
+//    selectRow() 로 첫 행 전체를 Map 으로 만든 뒤 첫 값을 꺼냈음
+    //    selectLong/selectString/selectBoolean edited
+//    첫 행의 첫 컬럼만 바로 읽음 (정수 컬럼은 rs.getLong(1), 나머지는 getObject(1) 후 기존과 같은 변환)
     public Long selectLong() {
-        Object value = getFirstValue(selectRow());
-        if (value == null) return null;
-        if (value instanceof Number) return ((Number) value).longValue();
-        try {
-            return Long.parseLong(value.toString().trim());
-        } catch (NumberFormatException e) {
-            return null;
-        }
+        return selectFirstValue("long", rs -> {
+            if (isIntegral(rs.getMetaData().getColumnType(1))) {
+                long value = rs.getLong(1);
+                return rs.wasNull() ? null : value;
+            }
+            return toLong(rs.getObject(1));
+        }, Sql::toLong);
     }
 
     public String selectString() {
-        Object value = getFirstValue(selectRow());
-        return value == null ? null : value.toString();
+        return selectFirstValue("string", rs -> toStringValue(rs.getObject(1)), Sql::toStringValue);
     }
 
     public Boolean selectBoolean() {
-        Object value = getFirstValue(selectRow());
-        if (value == null) return null;
-        if (value instanceof Boolean) return (Boolean) value;
-        if (value instanceof Number) return ((Number) value).intValue() != 0;
-        String s = value.toString().trim().toLowerCase();
-        if ("1".equals(s) || "true".equals(s)) return true;
-        if ("0".equals(s) || "false".equals(s)) return false;
-        return Boolean.parseBoolean(s);
+        return selectFirstValue("boolean", rs -> toBoolean(rs.getObject(1)), Sql::toBoolean);
     }
 
     public List<Long> selectLongs() {
-        return execute((ps) -> {
-            List<Long> result = new ArrayList<>();
+        return read("longs", () -> queryList(rs -> row -> row.getLong(1)));
+    }
+
+    // 첫 컬럼을 박싱 없이 long[] 로 (NULL 은 0)
+    public long[] selectLongArray() {
+        return read("longArray", () -> {
+            List<Sql> chunks = chunks();
+            if (chunks != null) {
+                long[][] parts = new long[chunks.size()][];
+                for (int i = 0; i < parts.length; i++) parts[i] = runChunk(chunks.get(i), Sql::selectLongArray);
+                return concat(parts);
+            }
+            return execute((ps) -> {
+                long[] result = new long[16];
+                int size = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (size == result.length) result = Arrays.copyOf(result, size * 2);
+                        result[size++] = rs.getLong(1);
+                    }
+                }
+                return Arrays.copyOf(result, size);
+            }, false);
+        });
+    }
+
+    // 첫 컬럼을 int[] 로 (NULL 은 0)
+    public int[] selectIntArray() {
+        return read("intArray", () -> {
+            List<Sql> chunks = chunks();
+            if (chunks != null) {
+                int[][] parts = new int[chunks.size()][];
+                for (int i = 0; i < parts.length; i++) parts[i] = runChunk(chunks.get(i), Sql::selectIntArray);
+                return concat(parts);
+            }
+            return execute((ps) -> {
+                int[] result = new int[16];
+                int size = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (size == result.length) result = Arrays.copyOf(result, size * 2);
+                        result[size++] = rs.getInt(1);
+                    }
+                }
+                return Arrays.copyOf(result, size);
+            }, false);
+        });
+    }
+
+    // 첫 컬럼을 한 행씩 흘려보내는 LongStream (stream() 과 같이 닫아야 커넥션이 반납됨)
+    // try (LongStream ids = sql.selectLongStream()) { ... }
+    public LongStream selectLongStream() {
+        return openStream((rs, state) -> StreamSupport.longStream(
+                Spliterators.spliteratorUnknownSize(new ResultSetLongIterator(rs, state), Spliterator.ORDERED), false));
+    }
+
+    // 클래스/레코드의 프로퍼티 이름과 컬럼 라벨을 맞춰서 매핑 (RowMappers 참고)
+    public <T> List<T> selectRows(Class<T> clazz) {
+        return read(clazz.getName(), () -> queryList(typedRowMapper(clazz)));
+    }
+
+    // SELECT * 를 clazz 의 프로퍼티 컬럼 목록으로 바꿈 (SELECT * 로 시작하지 않으면 그대로)
+    // Lazy 프로퍼티 컬럼은 빼므로 목록 조회에서 큰 TEXT/BLOB 컬럼을 보내고 받지 않음 (Lazy 참고)
+    // 컬럼 이름이 프로퍼티 이름과 같아야 함, 다 append 한 뒤에 부를 것
+    public Sql project(Class<?> clazz) {
+        String columns = RowMappers.projectionColumns(clazz).stream()
+                .map(column -> "`" + column.replace("`", "``") + "`")
+                .collect(Collectors.joining(", "));
+        builder.replaceSelectAll(columns);
+        return this;
+    }
+
+    // 조회 한 번의 결과 전체가 LazyLoader 하나를 같이 씀 (나중에 한꺼번에 다시 읽도록)
+    // 조회한 테이블이 하나일 때만 다시 읽을 수 있음
+    private <T> RowMapperFactory<T> typedRowMapper(Class<T> clazz) {
+        Set<String> tables = SqlTables.readTables(getSql());
+        String table = tables.size() == 1 ? tables.iterator().next() : null;
+        LazyLoader lazyLoader = new LazyLoader(simpleDb, SqlTables.UNKNOWN_TABLES.equals(table) ? null : table);
+        return rs -> RowMappers.forResultSet(clazz, rs, lazyLoader);
+    }
+
+    // 엔티티 캐시에 등록한 클래스의 id 조회면 캐시를 거침 (EntityCache 참고)
+    public <T> T selectRow(Class<T> clazz) {
+        EntityCache entityCache = simpleDb.getEntityCache();
+        if (entityCache != null && transaction == null) {
+            Object id = entityCache.lookupId(clazz, getSql(), getParams());
+            if (id != null) return entityCache.get(clazz, id, () -> firstRow(selectRows(clazz)));
+        }
+        return firstRow(selectRows(clazz));
+    }
+
+    private static <T> T firstRow(List<T> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public <T> List<T> selectRows(RowMapper<T> rowMapper) {
+        return queryList(rs -> rowMapper);
+    }
+
+    public LocalDateTime selectDatetime() {
+        return read("datetime", () -> execute((ps) -> {
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    result.add(rs.getLong(1));
+                if (rs.next()) {
+                    return rs.getTimestamp(1).toLocalDateTime();
                 }
+                return null;
             }
-            return result;
-        }, false);
+        }, false));
+    }
+
+    // 복제본이 설정되어 있어도 주 DB 에서 조회 (복제 지연을 허용할 수 없는 조회)
+    public Sql onPrimary() {
+        this.readFromPrimary = true;
+        return this;
     }
 
-    public List<Article> selectRows(Class<Article> clazz) {
+    // 결과 캐시 사용 (SimpleDb 에 QueryResultCache 가 설정되어 있을 때만, 트랜잭션 안에서는 무시)
+    // TTL 은 캐시의 기본값
+    public Sql cached() {
+        this.cached = true;
+        return this;
+    }
+
+    public Sql cached(Duration ttl) {
+        this.cached = true;
+        this.cacheTtl = ttl;
+        return this;
+    }
+
+    // 결과를 List 로 모으지 않고 한 행씩 흘려보냄
+    // MySQL 은 fetchSize 가 Integer.MIN_VALUE 이면 행 단위 스트리밍으로 읽으므로 결과 크기와 상관없이 메모리가 일정함
+    // 스트림을 닫아야 rs, ps 가 닫히고 커넥션이 반납되므로 try-with-resources 로 사용할 것
+    // try (Stream<Map<String, Object>> rows = sql.stream()) { ... }
+    public Stream<Map<String, Object>> stream() {
+        return queryStream(Sql::mapRowToMap);
+    }
+
+    public <T> Stream<T> stream(Class<T> clazz) {
+        return queryStream(typedRowMapper(clazz));
+    }
+
+    public void forEachRow(Consumer<Map<String, Object>> consumer) {
+        try (Stream<Map<String, Object>> rows = stream()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    <T> List<T> queryList(RowMapperFactory<T> rowMapperFactory) {
+        List<Sql> chunks = chunks();
+        if (chunks != null) {
+            List<T> result = new ArrayList<>();
+            for (Sql chunk : chunks) result.addAll(runChunk(chunk, c -> c.queryList(rowMapperFactory)));
+            return result;
+        }
+
         return execute((ps) -> {
-            List<Article> result = new ArrayList<>();
+            List<T> result = new ArrayList<>();
             try (ResultSet rs = ps.executeQuery()) {
+                RowMapper<T> rowMapper = rowMapperFactory.create(rs);
                 while (rs.next()) {
-                    result.add(mapRowToArticle(rs));
+                    result.add(rowMapper.mapRow(rs));
                 }
             }
             return result;
         }, false);
     }
 
-    public Article selectRow(Class<Article> clazz) {
-        List<Article> articles = selectRows(clazz);
-        return articles.isEmpty() ? null : articles.get(0);
+    // 스트림은 닫힐 때 (다 읽었거나 중간에 그만뒀을 때) 실행 시간과 읽은 행 수를 기록함
+    <T> Stream<T> queryStream(RowMapperFactory<T> rowMapperFactory) {
+        return openStream((rs, state) -> {
+            RowMapper<T> rowMapper = rowMapperFactory.create(rs);
+            Iterator<T> iterator = new ResultSetIterator<>(rs, rowMapper, state);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        });
     }
 
-    public LocalDateTime selectDatetime() {
-        return execute((ps) -> {
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getTimestamp(1).toLocalDateTime();
-                }
-                return null;
+    // 스트리밍 결과셋을 열고 streamFactory 가 만든 스트림이 닫힐 때 정리함
+    private <S extends BaseStream<?, S>> S openStream(CursorStreamFactory<S> streamFactory) {
+        QueryTimer timer = new QueryTimer(getSql(), getParams());
+        Deadline deadline = effectiveDeadline();
+        PooledConnection pc = borrowForStream(timer, deadline);
+        timer.connectionAcquired();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Execution execution = null;
+        ScheduledFuture<?> watchdog = null;
+        try {
+            // 스트리밍 중인 statement 는 다른 실행과 공유할 수 없으므로 캐시를 거치지 않음
+            ps = pc.getConnection().prepareStatement(getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(simpleDb.getStreamFetchSize());
+            setParams(ps);
+            execution = start(ps);
+            // 기한은 스트림을 닫을 때까지 적용됨
+            watchdog = watch(deadline, execution);
+            rs = ps.executeQuery();
+
+            CursorState state = new CursorState();
+            S stream = streamFactory.create(rs, state);
+
+            PreparedStatement statement = ps;
+            ResultSet resultSet = rs;
+            Execution streamExecution = execution;
+            ScheduledFuture<?> streamWatchdog = watchdog;
+            return stream.onClose(() -> {
+                finish(streamExecution, streamWatchdog);
+                close(resultSet, statement);
+                if (state.error instanceof SQLException e && isConnectionError(e)) pc.markBroken();
+                simpleDb.releaseConnection(transaction, pc);
+                timer.completed(state.rowCount, null);
+                // 기한이 지나 취소된 스트림은 오류 없이 일찍 끝났어도 시간 초과 (다 읽은 것처럼 알리면 안 됨)
+                boolean timedOut = streamExecution.timedOut || (state.error != null && deadline != null && deadline.isExpired());
+                RuntimeException error = timedOut ? (Deadline.isTimeout(state.error) && state.error instanceof RuntimeException e ? e : Deadline.timeoutError(state.error))
+                        : state.error == null ? null
+                        : state.error instanceof RuntimeException e ? e : new RuntimeException(state.error);
+                simpleDb.afterQuery(timer, error);
+                // 읽다가 난 오류는 이미 던졌으므로 시간 초과만 여기서 알림
+                if (timedOut && state.error == null) throw error;
+            });
+        } catch (SQLException e) {
+            finish(execution, watchdog);
+            close(rs, ps);
+            if (isConnectionError(e)) pc.markBroken();
+            simpleDb.releaseConnection(transaction, pc);
+            RuntimeException error = deadline != null && deadline.isExpired() && !Deadline.isTimeout(e)
+                    ? Deadline.timeoutError(e) : new RuntimeException(e);
+            simpleDb.afterQuery(timer, error);
+            throw error;
+        } catch (RuntimeException e) {
+            finish(execution, watchdog);
+            close(rs, ps);
+            simpleDb.releaseConnection(transaction, pc);
+            simpleDb.afterQuery(timer, e);
+            throw e;
+        }
+    }
+
+    // 키셋 페이지 조회 (KeysetPages 참고)
+    // 지금까지 append 한 SQL 은 WHERE 조건까지만 쓰고 ORDER BY/LIMIT 은 붙이지 않음
+    // SELECT * FROM (원래 SQL) AS keyset_page WHERE key > ? ORDER BY key LIMIT n 으로 실행되고,
+    // MySQL 이 바깥 조건을 안쪽으로 합쳐서(derived_merge) key 인덱스로 범위 검색함
+    // keyColumn 은 결과에 있는 컬럼 이름, 값이 유일하고 정렬 가능해야 함 (보통 PK)
+    public KeysetPages<Map<String, Object>> pages(String keyColumn, int pageSize) {
+        return pages(keyColumn, pageSize, Sql::mapRowToMap);
+    }
+
+    public <T> KeysetPages<T> pages(Class<T> clazz, String keyColumn, int pageSize) {
+        return pages(keyColumn, pageSize, typedRowMapper(clazz));
+    }
+
+    private <T> KeysetPages<T> pages(String keyColumn, int pageSize, RowMapperFactory<T> rowMapperFactory) {
+        if (!keyColumn.matches("\\w+")) throw new IllegalArgumentException("키 컬럼 이름이 올바르지 않습니다: " + keyColumn);
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize 는 1 이상이어야 합니다.");
+
+        String baseSql = getSql();
+        Object[] baseParams = getParams().toArray();
+        String key = "`" + keyColumn + "`";
+        KeysetPages.PageFetcher<T> fetcher = lastKey -> {
+            Sql page = new Sql(simpleDb, transaction);
+            page.readFromPrimary = readFromPrimary;
+            page.append("SELECT * FROM (" + baseSql + ") AS keyset_page", baseParams);
+            if (lastKey != null) page.append("WHERE " + key + " > ?", lastKey);
+            page.append("ORDER BY " + key + " LIMIT ?", pageSize);
+
+            Object[] pageLastKey = new Object[1];
+            List<T> rows = page.queryList(rs -> {
+                RowMapper<T> rowMapper = rowMapperFactory.create(rs);
+                int keyIndex = rs.findColumn(keyColumn);
+                return row -> {
+                    pageLastKey[0] = row.getObject(keyIndex);
+                    return rowMapper.mapRow(row);
+                };
+            });
+            return new KeysetPages.Page<>(rows, pageLastKey[0]);
+        };
+        return new KeysetPages<>(fetcher, pageSize, transaction == null ? simpleDb.getQueryExecutor() : null);
+    }
+
+    // 비동기 실행
+    // SimpleDb 의 QueryExecutor 에서 실행되고, 돌려받은 future 를 cancel 하면 실행중인 쿼리를 Statement.cancel() 로 취소함
+    // 서로 관계없는 조회 여러 개를 동시에 보내고 CompletableFuture.allOf 로 모아서 기다리는 용도
+    // 트랜잭션은 커넥션 하나를 쓰므로 트랜잭션 안에서는 사용할 수 없음
+    public CompletableFuture<Long> insertAsync() {
+        return async(this::insert);
+    }
+
+    public CompletableFuture<Integer> updateAsync() {
+        return async(this::update);
+    }
+
+    public CompletableFuture<Integer> deleteAsync() {
+        return async(this::delete);
+    }
+
+    public CompletableFuture<List<Map<String, Object>>> selectRowsAsync() {
+        return async(this::selectRows);
+    }
+
+    public CompletableFuture<Map<String, Object>> selectRowAsync() {
+        return async(this::selectRow);
+    }
+
+    public <T> CompletableFuture<List<T>> selectRowsAsync(Class<T> clazz) {
+        return async(() -> selectRows(clazz));
+    }
+
+    public <T> CompletableFuture<T> selectRowAsync(Class<T> clazz) {
+        return async(() -> selectRow(clazz));
+    }
+
+    public CompletableFuture<Long> selectLongAsync() {
+        return async(this::selectLong);
+    }
+
+    public CompletableFuture<String> selectStringAsync() {
+        return async(this::selectString);
+    }
+
+    public CompletableFuture<Boolean> selectBooleanAsync() {
+        return async(this::selectBoolean);
+    }
+
+    public CompletableFuture<List<Long>> selectLongsAsync() {
+        return async(this::selectLongs);
+    }
+
+    // 실행중이면 Statement.cancel(), 아직 시작 전이면 시작하지 않음
+    public void cancel() {
+        cancelled = true;
+        Sql chunk = runningChunk;
+        if (chunk != null) chunk.cancel();
+        cancelRunningStatement();
+    }
+
+    // IN 목록이 SimpleDb.maxInListSize 보다 길면 나눈 Sql 들, 아니면 null
+    // 나눠서 실행한 결과는 이어붙이거나(조회) 더하므로(수정/삭제) 합칠 수 없는 쿼리(ORDER BY, LIMIT, 집계 등)는 나누지 않음
+    // 트랜잭션 밖에서 나눠서 실행한 수정/삭제는 조각마다 따로 커밋됨
+    private List<Sql> chunks() {
+        List<SqlBuilder> builders = builder.splitInList(simpleDb.getMaxInListSize());
+        if (builders == null || !SqlTables.isChunkable(getSql())) return null;
+
+        Deadline budget = effectiveDeadline();
+        List<Sql> chunks = new ArrayList<>(builders.size());
+        for (SqlBuilder chunkBuilder : builders) {
+            Sql chunk = new Sql(simpleDb, transaction, chunkBuilder);
+            chunk.readFromPrimary = readFromPrimary;
+            // 조각들이 전체 기한 하나를 나눠 씀
+            chunk.deadline = budget;
+            chunk.timeout = Duration.ZERO;
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    // 트랜잭션 밖의 (잠금 없는) 조회만 복제본으로 보냄, 트랜잭션 안에서는 트랜잭션 커넥션(주 DB)을 씀
+    private boolean isReplicaRead() {
+        return transaction == null && !readFromPrimary && SqlTables.isReplicaRead(getSql());
+    }
+
+    private <T> T runChunk(Sql chunk, Function<Sql, T> query) {
+        if (cancelled) throw new RuntimeException(new SQLException("취소된 쿼리입니다.", "70100"));
+        runningChunk = chunk;
+        try {
+            return query.apply(chunk);
+        } finally {
+            runningChunk = null;
+        }
+    }
+
+    // 캐시를 쓰는 조회면 캐시를 먼저 보고, 없으면 loader 로 읽어서 넣음
+    // 캐시된 List 는 여러 호출자가 공유하므로 수정할 수 없게 감쌈
+    private <T> T read(String kind, Supplier<T> rawLoader) {
+        Supplier<T> loader = coalesced(kind, rawLoader);
+        QueryResultCache resultCache = simpleDb.getResultCache();
+        if (!cached || resultCache == null || transaction != null) return loader.get();
+
+        T result = resultCache.get(getSql(), getParams(), kind, cacheTtl, () -> {
+            T value = loader.get();
+            @SuppressWarnings("unchecked")
+            T shared = value instanceof List<?> list ? (T) Collections.unmodifiableList(list) : value;
+            return shared;
+        });
+        // 배열은 불변으로 감쌀 수 없으므로 캐시에 든 것을 복사해서 돌려줌
+        @SuppressWarnings("unchecked")
+        T copy = result instanceof long[] a ? (T) a.clone() : result instanceof int[] a ? (T) a.clone() : result;
+        return copy;
+    }
+
+    // ReadCoalescer 가 설정되어 있으면 동시에 실행중인 같은 조회의 결과를 나눠 받음 (결과 캐시에 없을 때도 마찬가지)
+    // 트랜잭션 안의 조회, 잠금 조회는 합치지 않음, 주 DB 로 가는 조회는 주 DB 조회끼리만 합침
+    private <T> Supplier<T> coalesced(String kind, Supplier<T> loader) {
+        ReadCoalescer readCoalescer = simpleDb.getReadCoalescer();
+        if (readCoalescer == null || transaction != null || !SqlTables.isReplicaRead(getSql())) return loader;
+        return () -> readCoalescer.execute(getSql(), getParams(), kind, !isReplicaRead(), effectiveDeadline(), loader);
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        if (transaction != null) throw new IllegalStateException("트랜잭션 안에서는 비동기 쿼리를 사용할 수 없습니다.");
+
+        CompletableFuture<T> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean result = super.cancel(mayInterruptIfRunning);
+                Sql.this.cancel();
+                return result;
             }
-        }, false);
+        };
+
+        try {
+            // 실패한 쿼리도 QueryExecutor 의 실패 수로 셈
+            simpleDb.getQueryExecutor().supply(future, query);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     public String getSql() {
@@ -154,15 +616,12 @@ public class Sql {
         return builder.getParams();
     }
 
-    private Connection getConnection() {
-        return connection;
-    }
-
+    //    setParams before
+//    ps.setObject(i + 1, params.get(i)) 로 값마다 드라이버가 타입을 검사하게 했음
+    //    setParams edited
+//    값의 클래스에 맞는 setXxx 를 SQL 별로 캐시한 계획에서 바로 꺼내 씀 (SimpleDb 의 ParamBinders 참고)
     private void setParams(PreparedStatement ps) throws SQLException {
-        List<Object> params = getParams();
-        for (int i = 0; i < params.size(); i++) {
-            ps.setObject(i + 1, params.get(i));
-        }
+        simpleDb.getParamBinders().bind(ps, getSql(), getParams());
     }
 
     private void close(AutoCloseable... resources) {
@@ -174,18 +633,18 @@ public class Sql {
         }
     }
 
-    private List<Map<String, Object>> mapResultSetToList(ResultSet rs) throws SQLException {
-        List<Map<String, Object>> list = new ArrayList<>();
-        ResultSetMetaData meta = rs.getMetaData();
-        int colCount = meta.getColumnCount();
-        while (rs.next()) {
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int i = 1; i <= colCount; i++) {
-                row.put(meta.getColumnLabel(i), rs.getObject(i));
+    // 컬럼 라벨은 결과셋마다 한 번만 읽어서 ColumnIndex 로 모든 행이 공유
+    // 행은 LinkedHashMap 대신 값 배열만 가진 Row
+    static RowMapper<Map<String, Object>> mapRowToMap(ResultSet rs) throws SQLException {
+        ColumnIndex columns = ColumnIndex.of(rs.getMetaData());
+        int colCount = columns.size();
+        return row -> {
+            Object[] values = new Object[colCount];
+            for (int i = 0; i < colCount; i++) {
+                values[i] = row.getObject(columns.columnNumber(i));
             }
-            list.add(row);
-        }
-        return list;
+            return new Row(columns, values);
+        };
     }
 
     private Object getFirstValue(Map<String, Object> row) {
@@ -193,15 +652,69 @@ public class Sql {
         return row.values().stream().findFirst().orElse(null);
     }
 
-    private Article mapRowToArticle(ResultSet rs) throws SQLException {
-        Article article = new Article();
-        article.setId(rs.getLong("id"));
-        article.setTitle(rs.getString("title"));
-        article.setBody(rs.getString("body"));
-        article.setCreatedDate(rs.getTimestamp("createdDate").toLocalDateTime());
-        article.setModifiedDate(rs.getTimestamp("modifiedDate").toLocalDateTime());
-        article.setBlind(rs.getBoolean("isBlind"));
-        return article;
+    // 첫 행 첫 컬럼 조회, 행이 없으면 null
+    // IN 목록을 나눠서 실행해야 하는 경우만 selectRow() 를 거침
+    private <T> T selectFirstValue(String kind, CellReader<T> reader, Function<Object, T> converter) {
+        return read(kind, () -> {
+            if (chunks() != null) return converter.apply(getFirstValue(selectRow()));
+            return execute((ps) -> {
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? reader.read(rs) : null;
+                }
+            }, false);
+        });
+    }
+
+    private static boolean isIntegral(int sqlType) {
+        return sqlType == Types.BIGINT || sqlType == Types.INTEGER || sqlType == Types.SMALLINT || sqlType == Types.TINYINT;
+    }
+
+    private static Long toLong(Object value) {
+        if (value == null) return null;
+        if (value instanceof Number) return ((Number) value).longValue();
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String toStringValue(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Boolean toBoolean(Object value) {
+        if (value == null) return null;
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Number) return ((Number) value).intValue() != 0;
+        String s = value.toString().trim().toLowerCase();
+        if ("1".equals(s) || "true".equals(s)) return true;
+        if ("0".equals(s) || "false".equals(s)) return false;
+        return Boolean.parseBoolean(s);
+    }
+
+    private static long[] concat(long[][] parts) {
+        int size = 0;
+        for (long[] part : parts) size += part.length;
+        long[] result = new long[size];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
+    }
+
+    private static int[] concat(int[][] parts) {
+        int size = 0;
+        for (int[] part : parts) size += part.length;
+        int[] result = new int[size];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, result, offset, part.length);
+            offset += part.length;
+        }
+        return result;
     }
 
     //  --execute before
@@ -234,25 +747,189 @@ public class Sql {
 //    }
 
     //  --execute edited
-//    rs와 ps를 try-with-resources를 이용해서 닫기
-//    ps가 닫힐때 알아서 연결된 rs도 자동으로 닫힘
+//    커넥션은 실행할 때마다 풀에서 빌리고 finally 에서 반납
+//    ps 는 커넥션별 statement 캐시에서 꺼내 쓰고, 닫지 않고 파라미터만 비워서 돌려놓음
+//    (rs 는 각 action 에서 try-with-resources 로 닫음)
+//    실행 시간, 풀 대기 시간, 행 수, statement 캐시 적중 여부를 QueryTimer 로 재서 SimpleDb 에 넘김 (QueryListener 참고)
     private <T> T execute(SqlAction<T> action, boolean returnGeneratedKeys) {
+        String sql = getSql();
+        QueryTimer timer = new QueryTimer(sql, getParams());
+        Deadline deadline = effectiveDeadline();
+        Throwable error = null;
         try {
-            Connection conn = getConnection();
-            try (PreparedStatement ps = returnGeneratedKeys ?
-                    conn.prepareStatement(getSql(), Statement.RETURN_GENERATED_KEYS) :
-                    conn.prepareStatement(getSql())) {
+            return execute(action, returnGeneratedKeys, sql, timer, deadline);
+        } catch (RuntimeException e) {
+            // 기한이 지난 뒤의 실패 (대여 대기 초과, watchdog 의 cancel 등) 는 시간 초과로 알림
+            RuntimeException thrown = deadline != null && deadline.isExpired() && !Deadline.isTimeout(e) ? Deadline.timeoutError(e) : e;
+            error = thrown;
+            throw thrown;
+        } finally {
+            simpleDb.afterQuery(timer, error);
+        }
+    }
 
+    private <T> T execute(SqlAction<T> action, boolean returnGeneratedKeys, String sql, QueryTimer timer, Deadline deadline) {
+        PooledConnection pc = simpleDb.borrowConnection(transaction, isReplicaRead(), deadline);
+        timer.connectionAcquired();
+        StatementCache statementCache = pc.getStatementCache();
+        try {
+            PreparedStatement ps = statementCache.prepare(sql, returnGeneratedKeys);
+            timer.statementPrepared(statementCache.isLastPrepareHit());
+            Execution execution = null;
+            ScheduledFuture<?> watchdog = null;
+            try {
                 setParams(ps);
-                return action.apply(ps);
-            } // ps는 여기서 자동으로 close() 호출
+                execution = start(ps);
+                if (cancelled) throw new SQLException("취소된 쿼리입니다.", "70100");
+                watchdog = watch(deadline, execution);
+                T result = action.apply(ps);
+                // statement 를 캐시에 돌려놓기 전에 취소될 수 없게 먼저 끝냄
+                finish(execution, watchdog);
+                if (execution.timedOut) throw new SQLTimeoutException("쿼리 기한이 지나서 취소했습니다.", "HY008");
+                timer.completed(countRows(ps, result), result);
+                statementCache.release(ps, sql, returnGeneratedKeys);
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                finish(execution, watchdog);
+                statementCache.discard(ps, sql, returnGeneratedKeys);
+                throw e;
+            }
         } catch (SQLException e) {
+            if (isConnectionError(e)) pc.markBroken();
             throw new RuntimeException(e);
+        } finally {
+            simpleDb.releaseConnection(transaction, pc);
+        }
+    }
+
+    // 조회 결과면 행 수, 아니면 드라이버가 알려준 영향받은 행 수
+    private long countRows(PreparedStatement ps, Object result) throws SQLException {
+        if (result instanceof List<?> list) return list.size();
+        if (result instanceof ResultTable table) return table.rowCount();
+        if (result instanceof long[] array) return array.length;
+        if (result instanceof int[] array) return array.length;
+        int updateCount = ps.getUpdateCount();
+        if (updateCount >= 0) return updateCount;
+        return result == null ? 0 : 1;
+    }
+
+    // Sql.timeout (없으면 SimpleDb 기본값) 과 deadline 중 먼저 오는 기한, 둘 다 없으면 null
+    private Deadline effectiveDeadline() {
+        long timeoutMillis = timeout != null ? timeout.toMillis() : simpleDb.getDefaultQueryTimeoutMillis();
+        Deadline byTimeout = timeoutMillis > 0 ? Deadline.after(Duration.ofMillis(timeoutMillis)) : null;
+        return Deadline.earliest(deadline, byTimeout);
+    }
+
+    // 기한이 지나면 이 실행의 statement 를 취소하도록 예약 (이미 지났으면 실행하지 않고 실패)
+    private ScheduledFuture<?> watch(Deadline deadline, Execution execution) throws SQLTimeoutException {
+        if (deadline == null) return null;
+        long remainingNanos = deadline.remainingNanos();
+        if (remainingNanos <= 0) throw new SQLTimeoutException("쿼리 기한이 지났습니다.", "HY008");
+        return simpleDb.getQueryWatchdog().schedule(execution::timeOut, remainingNanos);
+    }
+
+    private Execution start(Statement statement) {
+        Execution execution = new Execution(statement);
+        running.set(execution);
+        return execution;
+    }
+
+    // 실행이 끝나면 (성공/실패 모두) 다른 무엇보다 먼저 부름
+    // 이후의 cancel()/watchdog 은 이 statement 를 건드리지 않음 (캐시에 돌아가거나 다른 사람이 쓰는 커넥션의 쿼리를 KILL 하지 않도록)
+    private void finish(Execution execution, ScheduledFuture<?> watchdog) {
+        if (watchdog != null) watchdog.cancel(false);
+        if (execution == null) return;
+        running.compareAndSet(execution, null);
+        execution.finish();
+    }
+
+    // cancel() 과 달리 이 Sql 을 취소 상태로 만들지 않음
+    private void cancelRunningStatement() {
+        Execution execution = running.get();
+        if (execution != null) execution.cancel();
+    }
+
+    // 스트림용 대여 (대여 실패도 쿼리 실패로 기록)
+    private PooledConnection borrowForStream(QueryTimer timer, Deadline deadline) {
+        try {
+            return simpleDb.borrowConnection(transaction, isReplicaRead(), deadline);
+        } catch (RuntimeException e) {
+            RuntimeException error = deadline != null && deadline.isExpired() && !Deadline.isTimeout(e) ? Deadline.timeoutError(e) : e;
+            simpleDb.afterQuery(timer, error);
+            throw error;
         }
     }
 
+    // SQLState 08xxx = 커넥션 예외
+    private boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+
+    @FunctionalInterface
+    private interface CellReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
     @FunctionalInterface
     private interface SqlAction<T> {
         T apply(PreparedStatement ps) throws SQLException;
     }
+
+    // 스트리밍 결과셋 위에 스트림을 만듦, 읽은 행 수와 오류는 state 에 기록
+    @FunctionalInterface
+    private interface CursorStreamFactory<S> {
+        S create(ResultSet rs, CursorState state) throws SQLException;
+    }
+
+    // statement 실행 한 번
+    // 취소와 끝내기를 같은 잠금으로 막아서, 끝난 뒤에 도착한 취소는 아무 일도 하지 않음
+    // (cancel 은 드라이버가 네트워크로 KILL QUERY 를 보내므로 가상 스레드를 고정하지 않게 ReentrantLock 을 씀)
+    private static final class Execution {
+        private final Statement statement;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean finished;
+        // 기한이 지나서 watchdog 이 취소했는지
+        // (MySQL 은 SLEEP 같은 함수를 취소하면 오류 없이 끝나기도 하므로 결과를 믿으면 안 됨)
+        private volatile boolean timedOut;
+
+        private Execution(Statement statement) {
+            this.statement = statement;
+        }
+
+        private void timeOut() {
+            cancel(true);
+        }
+
+        private void cancel() {
+            cancel(false);
+        }
+
+        private void cancel(boolean timeout) {
+            lock.lock();
+            try {
+                if (finished) return;
+                if (timeout) timedOut = true;
+                statement.cancel();
+            } catch (SQLException ignored) {
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finish() {
+            lock.lock();
+            try {
+                finished = true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // 결과셋 메타데이터를 보고 행 매퍼를 만듦
+    @FunctionalInterface
+    interface RowMapperFactory<T> {
+        RowMapper<T> create(ResultSet rs) throws SQLException;
+    }
 }
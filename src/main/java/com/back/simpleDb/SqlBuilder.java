@@ -1,30 +1,200 @@
 package com.back.simpleDb;
 
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
 import lombok.Getter;
 
 @Getter
 public class SqlBuilder {
+    // 자주 쓰는 개수의 IN 자리표시자 문자열 ("?", "?, ?", ...) 을 미리 만들어둠
+    private static final int CACHED_PLACEHOLDERS = 64;
+    private static final String[] PLACEHOLDERS = new String[CACHED_PLACEHOLDERS + 1];
+    // 자리표시자 바로 앞이 "IN (" 인지 (VALUES (?), FIELD(id, ?) 같은 곳은 개수를 바꾸면 안 되므로 구분)
+    // "NOT IN (" 은 제외 (나눠서 실행하면 조각마다 거의 모든 행이 걸림)
+    private static final Pattern IN_PREDICATE = Pattern.compile("(?i)(?<!\\bNOT\\s{1,8})\\bIN\\s*\\(\\s*$");
+    private static final Pattern SELECT_ALL = Pattern.compile("(?i)^\\s*SELECT\\s+\\*");
+
+    static {
+        StringBuilder sb = new StringBuilder("?");
+        for (int n = 1; n <= CACHED_PLACEHOLDERS; n++) {
+            if (n > 1) sb.append(", ?");
+            PLACEHOLDERS[n] = sb.toString();
+        }
+    }
+
     private final StringBuilder sqlBuilder = new StringBuilder();
-    private final List<Object> params = new ArrayList<>();
+    private List<Object> params;
+    // getSql() 결과 캐시, append 하면 비움 (실행 한 번에 getSql() 을 여러 번 부름)
+    @Getter(AccessLevel.NONE)
+    private String sql;
+    // 0 보다 크면 이 개수 이하의 IN 목록은 2의 거듭제곱 개수로 맞춤 (bucketInLists 참고)
+    @Getter(AccessLevel.NONE)
+    private int inListBucketLimit;
+    // IN 목록 위치 (너무 긴 목록을 나눠서 실행할 때 사용)
+    @Getter(AccessLevel.NONE)
+    private List<InList> inLists = List.of();
+
+    public SqlBuilder() {
+        this.params = new ArrayList<>();
+    }
+
+    // SqlTemplate.bind 에서 사용
+    // 이미 만들어진 SQL 과 파라미터 배열을 그대로 들고 있고, 이어서 append 할 때만 복사함
+    SqlBuilder(String sql, Object[] params) {
+        this.sql = sql;
+        this.params = Arrays.asList(params);
+    }
 
     public SqlBuilder append(String sqlPart, Object... args) {
+        prepareAppend();
         if (sqlBuilder.length() > 0) sqlBuilder.append(" ");
         sqlBuilder.append(sqlPart);
         if (args != null) Collections.addAll(params, args);
         return this;
     }
 
+    //    appendIn before
+//    String.join(", ", Collections.nCopies(n, "?")) 로 매번 자리표시자 문자열을 새로 만들었음
+    //    appendIn edited
+//    64개까지는 미리 만들어둔 문자열을 씀
+//    IN ( ? ) 형태면 목록 위치를 기억하고, bucketInLists 가 켜져 있으면 개수를 2의 거듭제곱으로 맞춤
     public SqlBuilder appendIn(String sqlPart, Object... args) {
         if (args == null || args.length == 0)
             throw new IllegalArgumentException("IN 파라미터가 비어있습니다.");
-        String placeholders = String.join(", ", Collections.nCopies(args.length, "?"));
-        sqlBuilder.append(" ").append(sqlPart.replace("?", placeholders));
-        Collections.addAll(params, args);
+        prepareAppend();
+        sqlBuilder.append(" ");
+
+        int mark = sqlPart.indexOf('?');
+        if (mark < 0 || sqlPart.indexOf('?', mark + 1) >= 0) {
+            sqlBuilder.append(sqlPart.replace("?", placeholders(args.length)));
+            Collections.addAll(params, args);
+            return this;
+        }
+
+        sqlBuilder.append(sqlPart, 0, mark);
+        appendList(args);
+        sqlBuilder.append(sqlPart, mark + 1, sqlPart.length());
         return this;
     }
 
     public String getSql() {
-        return sqlBuilder.toString();
+        if (sql == null) sql = sqlBuilder.toString();
+        return sql;
+    }
+
+    // IN 목록 개수 맞추기 (Sql 이 SimpleDb 설정으로 켬)
+    // IN (?, ?, ?) → IN (?, ?, ?, ?) 처럼 마지막 값을 반복해서 2의 거듭제곱 개수로 채움
+    // 목록 길이가 다를 때마다 SQL 이 달라져 statement 캐시(클라이언트/서버)가 소용없어지는 것을 막음
+    // IN 은 값이 중복돼도 결과가 같으므로 IN ( 바로 뒤의 목록에만 적용
+    // maxSize 보다 긴 목록은 그대로 둠 (Sql 이 나눠서 실행), 0 이면 끔
+    SqlBuilder bucketInLists(int maxSize) {
+        this.inListBucketLimit = maxSize;
+        return this;
+    }
+
+    // SqlTemplate 이 조각 단위로 SQL 을 만들 때 사용 (공백을 붙이지 않음)
+    SqlBuilder appendFragment(String sqlPart, Object... args) {
+        prepareAppend();
+        sqlBuilder.append(sqlPart);
+        Collections.addAll(params, args);
+        return this;
+    }
+
+    // 바로 앞에 붙인 SQL 뒤에 목록 자리표시자를 붙임
+    SqlBuilder appendList(Object[] values) {
+        prepareAppend();
+        int length = sqlBuilder.length();
+        boolean inPredicate = IN_PREDICATE.matcher(sqlBuilder)
+                .region(Math.max(0, length - 32), length)
+                .useTransparentBounds(true)
+                .find();
+        int count = values.length;
+        if (inPredicate && count <= inListBucketLimit) count = bucket(count, inListBucketLimit);
+
+        int sqlStart = sqlBuilder.length();
+        int paramStart = params.size();
+        sqlBuilder.append(placeholders(count));
+        Collections.addAll(params, values);
+        for (int i = values.length; i < count; i++) params.add(values[values.length - 1]);
+
+        if (inPredicate) {
+            if (inLists.isEmpty()) inLists = new ArrayList<>(1);
+            inLists.add(new InList(sqlStart, sqlBuilder.length(), paramStart, params.size(), values));
+        }
+        return this;
+    }
+
+    // IN 목록이 하나뿐이고 chunkSize 보다 길면 chunkSize 개씩 나눈 SqlBuilder 들, 아니면 null
+    // WHERE 의 맨 바깥 AND 조건인 "컬럼 IN (...)" 만 나눔 (OR 로 이어졌거나 괄호 안이면 나누지 않고 그대로 실행, SqlTables.isTopLevelInCondition 참고)
+    List<SqlBuilder> splitInList(int chunkSize) {
+        if (chunkSize <= 0 || inLists.size() != 1) return null;
+        InList inList = inLists.get(0);
+        Object[] values = inList.values();
+        if (values.length <= chunkSize) return null;
+
+        String sql = getSql();
+        if (!SqlTables.isTopLevelInCondition(sql, inList.sqlStart())) return null;
+        String prefix = sql.substring(0, inList.sqlStart());
+        String suffix = sql.substring(inList.sqlEnd());
+        Object[] before = params.subList(0, inList.paramStart()).toArray();
+        Object[] after = params.subList(inList.paramEnd(), params.size()).toArray();
+
+        List<SqlBuilder> chunks = new ArrayList<>();
+        for (int from = 0; from < values.length; from += chunkSize) {
+            Object[] chunk = Arrays.copyOfRange(values, from, Math.min(from + chunkSize, values.length));
+            chunks.add(new SqlBuilder()
+                    .bucketInLists(inListBucketLimit)
+                    .appendFragment(prefix, before)
+                    .appendList(chunk)
+                    .appendFragment(suffix, after));
+        }
+        return chunks;
+    }
+
+    // 맨 앞의 SELECT * 를 SELECT columns 로 바꿈 (Sql.project 에서 사용), 바꿨으면 true
+    // IN 목록 위치도 바뀐 길이만큼 옮김
+    boolean replaceSelectAll(String columns) {
+        Matcher matcher = SELECT_ALL.matcher(getSql());
+        if (!matcher.lookingAt()) return false;
+
+        int start = matcher.start();
+        int end = matcher.end();
+        String replacement = "SELECT " + columns;
+        prepareAppend();
+        sqlBuilder.replace(start, end, replacement);
+
+        int shift = replacement.length() - (end - start);
+        List<InList> shifted = new ArrayList<>(inLists.size());
+        for (InList inList : inLists) {
+            shifted.add(new InList(inList.sqlStart() + shift, inList.sqlEnd() + shift, inList.paramStart(), inList.paramEnd(), inList.values()));
+        }
+        if (!inLists.isEmpty()) inLists = shifted;
+        return true;
+    }
+
+    static String placeholders(int count) {
+        if (count <= CACHED_PLACEHOLDERS) return PLACEHOLDERS[count];
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // count 이상인 가장 작은 2의 거듭제곱 (limit 을 넘으면 limit)
+    static int bucket(int count, int limit) {
+        int bucket = count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+        return Math.min(bucket, limit);
+    }
+
+    private void prepareAppend() {
+        // 템플릿으로 시작했으면 여기서 처음으로 StringBuilder/ArrayList 로 옮김
+        if (sql != null && sqlBuilder.length() == 0) {
+            sqlBuilder.append(sql);
+            params = new ArrayList<>(params);
+        }
+        sql = null;
+    }
+
+    // sql 범위는 자리표시자 문자열, params 범위는 채운 값까지 포함, values 는 원래 목록
+    private record InList(int sqlStart, int sqlEnd, int paramStart, int paramEnd, Object[] values) {
     }
 }
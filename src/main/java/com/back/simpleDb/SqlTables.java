@@ -0,0 +1,227 @@
+package com.back.simpleDb;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// SQL 문자열에서 읽거나 쓰는 테이블 이름을 대충 뽑아냄 (파서가 아니라 정규식)
+// 캐시 무효화처럼 "모르면 넓게" 처리해도 되는 곳에서만 사용
+final class SqlTables {
+    private static final String NAME = "`?(?:\\w+`?\\.`?)?(\\w+)`?";
+    private static final Pattern WRITE = Pattern.compile(
+            "^\\s*(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE(?:\\s+INTO)?|UPDATE(?:\\s+IGNORE)?|DELETE\\s+(?:IGNORE\\s+)?FROM|TRUNCATE(?:\\s+TABLE)?|DROP\\s+TABLE(?:\\s+IF\\s+EXISTS)?|ALTER\\s+TABLE|CREATE\\s+TABLE(?:\\s+IF\\s+NOT\\s+EXISTS)?)\\s+" + NAME,
+            Pattern.CASE_INSENSITIVE);
+    // readTables 가 FROM 목록을 다 알아보지 못했을 때 넣는 표시 (어느 테이블에 쓰든 영향을 받는다고 봐야 함)
+    static final String UNKNOWN_TABLES = "*";
+    private static final Pattern FROM = Pattern.compile("\\bFROM\\b", Pattern.CASE_INSENSITIVE);
+    // FROM 목록이 끝나는 절
+    private static final Set<String> FROM_LIST_END = Set.of(
+            "WHERE", "GROUP", "HAVING", "WINDOW", "ORDER", "LIMIT", "UNION", "EXCEPT", "INTERSECT", "FOR", "LOCK", "INTO");
+    private static final Pattern TABLE_SEPARATOR = Pattern.compile(",|\\b(?:STRAIGHT_)?JOIN\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JOIN_CONDITION = Pattern.compile("\\b(?:ON|USING)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern JOIN_MODIFIERS = Pattern.compile("(?:\\s+(?:NATURAL|LEFT|RIGHT|INNER|CROSS|OUTER|FULL))+\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TABLE_REFERENCE = Pattern.compile("^" + NAME + "(?:\\s+(?:AS\\s+)?\\w+)?$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DERIVED_TABLE = Pattern.compile("^\\(\\s*(?:SELECT|WITH)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SELECT = Pattern.compile("^\\s*\\(?\\s*(?:SELECT|WITH|SHOW|EXPLAIN|DESC|DESCRIBE)\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LOCKING_READ = Pattern.compile(
+            "\\b(?:FOR\\s+UPDATE|FOR\\s+SHARE|LOCK\\s+IN\\s+SHARE\\s+MODE|LAST_INSERT_ID|GET_LOCK|RELEASE_LOCK|FOUND_ROWS)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // 결과를 나눠서 구한 뒤 이어붙이면 달라지는 구문
+    private static final Pattern NOT_CHUNKABLE = Pattern.compile(
+            "\\b(?:ORDER\\s+BY|GROUP\\s+BY|LIMIT|DISTINCT|HAVING|UNION|COUNT|SUM|AVG|MIN|MAX|GROUP_CONCAT)\\b",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHERE_END = Pattern.compile(
+            "\\b(?:GROUP|HAVING|WINDOW|ORDER|LIMIT|UNION|EXCEPT|INTERSECT|FOR|LOCK|INTO)\\b|;", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DISJUNCTION = Pattern.compile("\\b(?:OR|XOR)\\b|\\|\\|", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONJUNCTION = Pattern.compile("\\bAND\\b|&&", Pattern.CASE_INSENSITIVE);
+    // 컬럼 IN ( 만 (NOT IN, NOT 컬럼 IN, 식 IN 은 아님)
+    private static final Pattern COLUMN_IN = Pattern.compile(
+            "^\\s*(?:`[^`]*`|\\w+)(?:\\.(?:`[^`]*`|\\w+))*\\s+IN\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private SqlTables() {
+    }
+
+    static boolean isRead(String sql) {
+        return SELECT.matcher(sql).find();
+    }
+
+    // 복제본으로 보내도 되는 조회인지 (잠금 조회나 세션 상태를 읽는 함수는 주 DB 에서만 의미가 있음)
+    static boolean isReplicaRead(String sql) {
+        return isRead(sql) && !LOCKING_READ.matcher(sql).find();
+    }
+
+    // 쓰기 대상 테이블, 알아내지 못하면 null
+    static String writtenTable(String sql) {
+        Matcher matcher = WRITE.matcher(sql);
+        return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+    }
+
+    // 읽는 테이블
+    // FROM 마다 WHERE/GROUP BY/ORDER BY/LIMIT 등이 나올 때까지의 목록을 쉼표와 JOIN 으로 나눠서 봄 (FROM a, b 도 b 를 놓치지 않도록)
+    // 서브쿼리는 그 안의 FROM 을 따로 봄
+    // 테이블 이름으로 알아보지 못한 항목이 있으면 UNKNOWN_TABLES 를 넣음
+    static Set<String> readTables(String sql) {
+        String text = blankLiterals(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher from = FROM.matcher(text);
+        while (from.find()) {
+            int end = fromListEnd(text, from.end());
+            addTables(text.substring(from.end(), end), tables);
+        }
+        return tables;
+    }
+
+    // 문자열 리터럴 안의 키워드, 쉼표, 괄호를 무시하도록 공백으로 바꿈 (길이는 그대로)
+    private static String blankLiterals(String sql) {
+        StringBuilder text = new StringBuilder(sql);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\'' && c != '"' && c != '`') continue;
+            int end = Math.min(SqlTemplate.skipQuoted(sql, i, c), sql.length());
+            if (c != '`') {
+                for (int j = i + 1; j < end - 1; j++) text.setCharAt(j, ' ');
+            }
+            i = end - 1;
+        }
+        return text.toString();
+    }
+
+    private static int fromListEnd(String text, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                // FROM 이 서브쿼리 안에 있었으면 그 서브쿼리가 끝나는 곳까지
+                if (depth == 0) return i;
+                depth--;
+            } else if (c == ';' && depth == 0) {
+                return i;
+            } else if (c == '`') {
+                i = SqlTemplate.skipQuoted(text, i, c);
+                continue;
+            } else if (Character.isLetter(c) && (i == 0 || !isWordPart(text.charAt(i - 1)))) {
+                int end = i;
+                while (end < text.length() && isWordPart(text.charAt(end))) end++;
+                if (depth == 0 && FROM_LIST_END.contains(text.substring(i, end).toUpperCase(Locale.ROOT))) return i;
+                i = end;
+                continue;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static void addTables(String fromList, Set<String> tables) {
+        // 괄호 안은 나누지 않도록 가려서 나눔 (원래 문자열과 위치는 같음)
+        String masked = maskNested(fromList);
+        Matcher separator = TABLE_SEPARATOR.matcher(masked);
+        int start = 0;
+        while (true) {
+            boolean found = separator.find();
+            int end = found ? separator.start() : masked.length();
+            addTable(fromList, masked, start, end, tables);
+            if (!found) return;
+            start = separator.end();
+        }
+    }
+
+    private static void addTable(String fromList, String masked, int start, int end, Set<String> tables) {
+        Matcher condition = JOIN_CONDITION.matcher(masked).region(start, end);
+        if (condition.find()) end = condition.start();
+        String reference = JOIN_MODIFIERS.matcher(masked.substring(start, end)).replaceFirst("").trim();
+
+        Matcher table = TABLE_REFERENCE.matcher(reference);
+        if (table.matches()) {
+            tables.add(table.group(1).toLowerCase(Locale.ROOT));
+        } else if (!DERIVED_TABLE.matcher(fromList.substring(start, end).trim()).find()) {
+            // 서브쿼리(파생 테이블)는 그 안의 FROM 에서 따로 찾음, 그 밖에 모르는 것은 모든 테이블로 봄
+            tables.add(UNKNOWN_TABLES);
+        }
+    }
+
+    private static String maskNested(String text) {
+        StringBuilder masked = new StringBuilder(text);
+        int depth = 0;
+        for (int i = 0; i < masked.length(); i++) {
+            char c = masked.charAt(i);
+            if (c == ')') depth--;
+            if (depth > 0) masked.setCharAt(i, ' ');
+            if (c == '(') depth++;
+        }
+        return masked.toString();
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    // 공백만 정리 (문자열 리터럴이 있을 수 있으므로 대소문자는 건드리지 않음)
+    static String normalize(String sql) {
+        return WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+    }
+
+    // 메트릭 집계용 SQL 모양
+    // IN (?, ?, ?) 처럼 개수만 다른 자리표시자 목록은 ?... 하나로 합쳐서 같은 쿼리로 묶음
+    static String shape(String sql) {
+        return PLACEHOLDER_LIST.matcher(normalize(sql)).replaceAll("?...");
+    }
+
+    // IN 목록을 나눠서 여러 번 실행하고 결과를 합쳐도 되는지 (SELECT/UPDATE/DELETE 만)
+    static boolean isChunkable(String sql) {
+        String statement = sql.stripLeading();
+        boolean supported = statement.regionMatches(true, 0, "SELECT", 0, 6)
+                || statement.regionMatches(true, 0, "UPDATE", 0, 6)
+                || statement.regionMatches(true, 0, "DELETE", 0, 6);
+        return supported && !NOT_CHUNKABLE.matcher(sql).find();
+    }
+
+    // listStart 에서 시작하는 IN 목록이 WHERE 의 맨 바깥 AND 조건 "컬럼 IN (...)" 하나인지
+    // 이때만 목록을 나눈 결과를 합쳐도 원래 결과와 같음
+    // NOT IN, NOT 컬럼 IN, OR/XOR 로 이어진 WHERE, 괄호 안이나 서브쿼리 안의 IN 은 나누면 행이 더 나오거나 (삭제/수정이면) 더 지워짐
+    static boolean isTopLevelInCondition(String sql, int listStart) {
+        String text = blankLiterals(sql);
+        int open = listStart - 1;
+        while (open >= 0 && Character.isWhitespace(text.charAt(open))) open--;
+        if (open < 0 || text.charAt(open) != '(') return false;
+        int depth = 0;
+        for (int i = 0; i < open; i++) {
+            char c = text.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+        if (depth != 0) return false;
+
+        // 괄호 안을 가렸으므로 아래 정규식은 맨 바깥 단계만 봄
+        String masked = maskNested(text);
+        Matcher where = WHERE.matcher(masked);
+        if (!where.find() || where.end() > open) return false;
+        int close = masked.indexOf(')', open);
+        if (close < 0) return false;
+        Matcher whereEnd = WHERE_END.matcher(masked);
+        int end = whereEnd.find(close) ? whereEnd.start() : masked.length();
+        String clause = masked.substring(where.end(), end);
+        if (DISJUNCTION.matcher(clause).find()) return false;
+
+        int conditionStart = where.end();
+        Matcher and = CONJUNCTION.matcher(masked).region(where.end(), end);
+        int conditionEnd = end;
+        while (and.find()) {
+            if (and.end() <= open) {
+                conditionStart = and.end();
+            } else if (and.start() > close) {
+                conditionEnd = and.start();
+                break;
+            }
+        }
+        return COLUMN_IN.matcher(masked.substring(conditionStart, open)).matches()
+                && masked.substring(close + 1, conditionEnd).isBlank();
+    }
+}
@@ -0,0 +1,184 @@
+package com.back.simpleDb;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 한 번 파싱해두고 파라미터만 바꿔서 쓰는 SQL 템플릿
+// private static final SqlTemplate FIND_BY_ID = SqlTemplate.of("SELECT * FROM article WHERE id = :id");
+// simpleDb.genSql(FIND_BY_ID, 1).selectRow();
+// - 자리표시자는 ? (순서대로) 또는 :이름 (같은 이름을 여러 번 써도 값은 한 번만 넘김), 섞어서 쓸 수는 없음
+// - 문자열/식별자 따옴표 안의 ? 와 :이름, MySQL 의 :=, :: 는 자리표시자로 보지 않음
+// - 값이 Collection 이나 Object[] 이면 IN 목록으로 펼침 (WHERE id IN (:ids))
+// 목록이 없으면 SQL 문자열은 파싱할 때 만든 것을 그대로 쓰고, 파라미터 배열도 가능하면 넘긴 배열을 그대로 씀
+public final class SqlTemplate {
+    // SqlTemplate.of 캐시, 템플릿은 코드에 고정된 SQL 이라는 전제 (문자열을 이어붙여 만든 SQL 은 넣지 말 것)
+    private static final Map<String, SqlTemplate> CACHE = new ConcurrentHashMap<>();
+
+    private final String template;
+    // 자리표시자를 전부 ? 로 바꾼 SQL
+    private final String sql;
+    // 자리표시자 사이의 SQL 조각 (자리표시자 n 개면 n + 1 개), 목록을 펼칠 때 사용
+    private final String[] fragments;
+    // 자리표시자 순서 → 넘겨받는 값의 순서
+    private final int[] slotToParam;
+    // :이름 을 쓴 경우 값의 순서대로 이름, ? 를 쓴 경우 비어있음
+    private final List<String> paramNames;
+    private final int paramCount;
+    // 자리표시자와 값이 1:1 이면 넘겨받은 배열을 그대로 파라미터로 씀
+    private final boolean identity;
+
+    private SqlTemplate(String template) {
+        this.template = template;
+
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Map<String, Integer> names = new LinkedHashMap<>();
+        boolean positional = false;
+
+        StringBuilder part = new StringBuilder();
+        int length = template.length();
+        for (int i = 0; i < length; i++) {
+            char c = template.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(template, i, c);
+                part.append(template, i, end);
+                i = end - 1;
+            } else if (c == '?') {
+                positional = true;
+                parts.add(part.toString());
+                part.setLength(0);
+                slots.add(slots.size());
+            } else if (c == ':' && isNameStart(template, i + 1) && (i == 0 || template.charAt(i - 1) != ':')) {
+                int end = i + 1;
+                while (end < length && Character.isJavaIdentifierPart(template.charAt(end))) end++;
+                String name = template.substring(i + 1, end);
+                parts.add(part.toString());
+                part.setLength(0);
+                slots.add(names.computeIfAbsent(name, n -> names.size()));
+                i = end - 1;
+            } else {
+                part.append(c);
+            }
+        }
+        parts.add(part.toString());
+
+        if (positional && !names.isEmpty())
+            throw new IllegalArgumentException("? 와 :이름 자리표시자를 섞어서 쓸 수 없습니다.");
+
+        this.fragments = parts.toArray(String[]::new);
+        this.sql = String.join("?", fragments);
+        this.slotToParam = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.paramNames = List.copyOf(names.keySet());
+        this.paramCount = positional ? slotToParam.length : names.size();
+
+        boolean identity = slotToParam.length == paramCount;
+        for (int i = 0; identity && i < slotToParam.length; i++) identity = slotToParam[i] == i;
+        this.identity = identity;
+    }
+
+    public static SqlTemplate of(String template) {
+        return CACHE.computeIfAbsent(template, SqlTemplate::new);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    // 목록을 펼치기 전의 SQL (자리표시자는 전부 ?)
+    public String getSql() {
+        return sql;
+    }
+
+    public List<String> getParamNames() {
+        return paramNames;
+    }
+
+    public int getParamCount() {
+        return paramCount;
+    }
+
+    // 값은 ? 순서, 또는 :이름 이 처음 나온 순서대로
+    public SqlBuilder bind(Object... values) {
+        return bindBucketed(0, values);
+    }
+
+    // inListBucketLimit: SqlBuilder.bucketInLists 참고 (SimpleDb.genSql 에서 넘김)
+    SqlBuilder bindBucketed(int inListBucketLimit, Object[] values) {
+        if (values == null) values = new Object[]{null};
+        if (values.length != paramCount)
+            throw new IllegalArgumentException("파라미터 개수가 맞지 않습니다. (필요: %d, 받음: %d)".formatted(paramCount, values.length));
+
+        if (hasList(values)) return expand(values, inListBucketLimit);
+        if (identity) return new SqlBuilder(sql, values);
+
+        Object[] params = new Object[slotToParam.length];
+        for (int i = 0; i < params.length; i++) params[i] = values[slotToParam[i]];
+        return new SqlBuilder(sql, params);
+    }
+
+    public SqlBuilder bind(Map<String, ?> values) {
+        if (paramNames.isEmpty() && paramCount > 0)
+            throw new IllegalArgumentException("? 자리표시자는 이름으로 바인딩할 수 없습니다.");
+
+        Object[] array = new Object[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            String name = paramNames.get(i);
+            if (!values.containsKey(name)) throw new IllegalArgumentException("파라미터 :%s 가 없습니다.".formatted(name));
+            array[i] = values.get(name);
+        }
+        return bind(array);
+    }
+
+    private boolean hasList(Object[] values) {
+        for (Object value : values) {
+            if (value instanceof Collection<?> || value instanceof Object[]) return true;
+        }
+        return false;
+    }
+
+    private SqlBuilder expand(Object[] values, int inListBucketLimit) {
+        SqlBuilder builder = new SqlBuilder().bucketInLists(inListBucketLimit);
+        for (int i = 0; i < slotToParam.length; i++) {
+            builder.appendFragment(fragments[i]);
+            Object value = values[slotToParam[i]];
+            Object[] list = value instanceof Object[] array ? array : value instanceof Collection<?> c ? c.toArray() : null;
+            if (list == null) {
+                builder.appendFragment("?", value);
+                continue;
+            }
+            if (list.length == 0) throw new IllegalArgumentException("IN 파라미터가 비어있습니다.");
+            builder.appendList(list);
+        }
+        return builder.appendFragment(fragments[fragments.length - 1]);
+    }
+
+    // 따옴표로 시작하는 start 부터 닫는 따옴표 다음 위치 (Script.split 에서도 씀)
+    static int skipQuoted(String s, int start, char quote) {
+        int i = start + 1;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                // '' 처럼 두 번 쓴 따옴표는 이스케이프
+                if (i + 1 < s.length() && s.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return s.length();
+    }
+
+    private static boolean isNameStart(String s, int i) {
+        return i < s.length() && Character.isJavaIdentifierStart(s.charAt(i));
+    }
+}
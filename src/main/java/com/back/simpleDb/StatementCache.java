@@ -0,0 +1,108 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 커넥션 하나에 딸린 PreparedStatement LRU 캐시
+// 커넥션은 한 번에 한 스레드만 빌려가므로 따로 동기화하지 않음
+// useServerPrepStmts=true 인 경우 서버쪽 statement 핸들도 캐시에 있는 동안 유지되어 COM_STMT_PREPARE 왕복이 생략됨
+class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final StatementCacheStats stats;
+    private final LinkedHashMap<Key, PreparedStatement> cache;
+    // 마지막 prepare 가 캐시에서 꺼낸 것인지 (쿼리 이벤트 기록용)
+    private boolean lastPrepareHit;
+
+    StatementCache(Connection connection, int maxSize, StatementCacheStats stats) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) return false;
+                stats.recordEviction();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    PreparedStatement prepare(String sql, boolean returnGeneratedKeys) throws SQLException {
+        lastPrepareHit = false;
+        if (maxSize <= 0) {
+            stats.recordMiss();
+            return newStatement(sql, returnGeneratedKeys);
+        }
+
+        Key key = new Key(sql, returnGeneratedKeys);
+        PreparedStatement ps = cache.get(key);
+        if (ps != null && !ps.isClosed()) {
+            stats.recordHit();
+            lastPrepareHit = true;
+            return ps;
+        }
+
+        stats.recordMiss();
+        ps = newStatement(sql, returnGeneratedKeys);
+        cache.put(key, ps);
+        return ps;
+    }
+
+    // 실행이 끝난 statement 를 다음 사용을 위해 정리
+    // 캐시에 없는 statement(캐시 비활성)는 닫음
+    void release(PreparedStatement ps, String sql, boolean returnGeneratedKeys) {
+        if (maxSize <= 0) {
+            closeQuietly(ps);
+            return;
+        }
+        try {
+            ps.clearParameters();
+        } catch (SQLException e) {
+            discard(ps, sql, returnGeneratedKeys);
+        }
+    }
+
+    // 실행 중 오류가 난 statement 는 상태를 믿을 수 없으므로 캐시에서 빼고 닫음
+    void discard(PreparedStatement ps, String sql, boolean returnGeneratedKeys) {
+        cache.remove(new Key(sql, returnGeneratedKeys), ps);
+        closeQuietly(ps);
+    }
+
+    void clear() {
+        List<PreparedStatement> statements = new ArrayList<>(cache.values());
+        cache.clear();
+        statements.forEach(StatementCache::closeQuietly);
+    }
+
+    boolean isLastPrepareHit() {
+        return lastPrepareHit;
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    private PreparedStatement newStatement(String sql, boolean returnGeneratedKeys) throws SQLException {
+        return returnGeneratedKeys ?
+                connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) :
+                connection.prepareStatement(sql);
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private record Key(String sql, boolean returnGeneratedKeys) {
+    }
+}
@@ -0,0 +1,220 @@
+package com.back.simpleDb;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// 트랜잭션 하나가 커넥션 하나를 붙잡고 있다가 최상위 commit/rollback 에서 풀에 반납함
+// - 커넥션은 트랜잭션 안에서 첫 쿼리가 실행될 때 빌림 (아무 쿼리도 없으면 왕복 0번)
+// - autoCommit=false, 격리수준도 그때 설정하고, 이미 같은 값이면 드라이버에 다시 보내지 않음
+// - 트랜잭션 안에서 다시 시작하면 savepoint 로 중첩 처리
+// 트랜잭션은 스레드가 아니라 이 객체(핸들)에 묶임
+// 여기서 만든 Sql/Batch 는 어느 스레드에서 실행해도 같은 커넥션을 씀 (단, 동시에 두 스레드가 쓰면 안 됨)
+// simpleDb.beginTransaction() 으로 직접 받거나, startTransaction()/inTransaction() 이 현재 스레드에 걸어둠
+public class Transaction {
+    // 중첩 시작 시점에 아직 아무 쿼리도 없었으면 savepoint 대신 이 표시를 넣음
+    // 그 단계를 롤백하면 트랜잭션 전체를 롤백하는 것과 같음
+    private static final Savepoint NO_WORK_YET = new Savepoint() {
+        @Override
+        public int getSavepointId() {
+            return 0;
+        }
+
+        @Override
+        public String getSavepointName() {
+            return "NO_WORK_YET";
+        }
+    };
+
+    private final SimpleDb simpleDb;
+    private final ConnectionPool pool;
+    private final IsolationLevel isolationLevel;
+    private final Deque<Savepoint> savepoints = new ArrayDeque<>();
+    // 커밋 후 결과 캐시에서 지울 테이블 (null 이 들어있으면 전부)
+    private final Set<String> writtenTables = new HashSet<>();
+    // 커밋 후 엔티티 캐시에서 지울 범위
+    private final List<EntityCache.Invalidation> entityWrites = new ArrayList<>();
+    private PooledConnection pc;
+    private int previousIsolation = -1;
+    private boolean finished;
+    // 쓰기가 있었는지 (커밋할 때 read-your-writes 시각을 기록하기 위해)
+    private boolean wrote;
+
+    Transaction(SimpleDb simpleDb, IsolationLevel isolationLevel) {
+        this.simpleDb = simpleDb;
+        this.pool = simpleDb.getPool();
+        this.isolationLevel = isolationLevel;
+    }
+
+    public Sql genSql() {
+        return new Sql(simpleDb, this);
+    }
+
+    public Sql genSql(SqlTemplate template, Object... params) {
+        return new Sql(simpleDb, this, template.bindBucketed(simpleDb.inListBucketLimit(), params));
+    }
+
+    public Batch batch(String sql) {
+        return new Batch(simpleDb, this, sql);
+    }
+
+    public BulkInsert insertInto(String table) {
+        return new BulkInsert(simpleDb, this, table);
+    }
+
+    // SimpleDb.run 과 같이 execute() 로 실행 (결과셋을 돌려주는 문장도 실패하지 않음, Sql.run 참고)
+    public void run(String sql, Object... params) {
+        genSql().append(sql, params).run();
+    }
+
+    // savepoint 로 중첩
+    public void startTransaction() {
+        beginNested();
+    }
+
+    public void commit() {
+        commitCurrentLevel();
+    }
+
+    public void rollback() {
+        rollbackCurrentLevel();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    PooledConnection connection() {
+        if (finished) throw new IllegalStateException("이미 끝난 트랜잭션입니다.");
+        if (pc != null) return pc;
+
+        PooledConnection borrowed = pool.borrow();
+        try {
+            if (isolationLevel != null) {
+                Connection con = borrowed.getConnection();
+                int current = con.getTransactionIsolation();
+                if (current != isolationLevel.getJdbcLevel()) {
+                    con.setTransactionIsolation(isolationLevel.getJdbcLevel());
+                    previousIsolation = current;
+                }
+            }
+            borrowed.setAutoCommit(false);
+        } catch (SQLException e) {
+            borrowed.markBroken();
+            pool.release(borrowed);
+            throw new RuntimeException(e);
+        }
+        pc = borrowed;
+        return pc;
+    }
+
+    boolean owns(PooledConnection pc) {
+        return pc != null && this.pc == pc;
+    }
+
+    void markWritten() {
+        wrote = true;
+    }
+
+    void recordWrite(String table) {
+        writtenTables.add(table);
+    }
+
+    void recordEntityWrite(EntityCache.Invalidation invalidation) {
+        entityWrites.add(invalidation);
+    }
+
+    void beginNested() {
+        try {
+            savepoints.push(pc == null ? NO_WORK_YET : pc.getConnection().setSavepoint());
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // 최상위 트랜잭션이 끝났으면 true
+    boolean commitCurrentLevel() {
+        if (!savepoints.isEmpty()) {
+            Savepoint savepoint = savepoints.pop();
+            if (savepoint != NO_WORK_YET) {
+                try {
+                    pc.getConnection().releaseSavepoint(savepoint);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return false;
+        }
+
+        try {
+            if (pc != null) pc.getConnection().commit();
+        } catch (SQLException e) {
+            rollbackQuietly();
+            throw new RuntimeException(e);
+        } finally {
+            finish();
+        }
+        writtenTables.forEach(simpleDb::invalidateResultCache);
+        entityWrites.forEach(simpleDb::invalidateEntityCache);
+        if (wrote) simpleDb.markWritten();
+        return true;
+    }
+
+    boolean rollbackCurrentLevel() {
+        if (!savepoints.isEmpty()) {
+            Savepoint savepoint = savepoints.pop();
+            if (pc == null) return false;
+            try {
+                if (savepoint == NO_WORK_YET) pc.getConnection().rollback();
+                else pc.getConnection().rollback(savepoint);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            return false;
+        }
+
+        try {
+            if (pc != null) pc.getConnection().rollback();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            finish();
+        }
+        return true;
+    }
+
+    // 끝나지 않은 트랜잭션 정리 (중첩 단계 포함 전부 롤백)
+    void rollbackAll() {
+        savepoints.clear();
+        rollbackCurrentLevel();
+    }
+
+    private void rollbackQuietly() {
+        try {
+            pc.getConnection().rollback();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        if (pc == null) return;
+
+        if (previousIsolation >= 0) {
+            try {
+                pc.getConnection().setTransactionIsolation(previousIsolation);
+            } catch (SQLException e) {
+                pc.markBroken();
+            }
+        }
+        // autoCommit 은 다음에 트랜잭션 밖에서 빌릴 때 필요하면 되돌림 (SimpleDb.borrowConnection)
+        pool.release(pc);
+        pc = null;
+    }
+}
@@ -0,0 +1,114 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParamBindersTest {
+    enum Status {
+        OPEN, CLOSED
+    }
+
+    record Money(long won) {
+    }
+
+    // 호출된 setXxx 를 "메서드(인덱스, 값)" 으로 기록하는 PreparedStatement
+    private static PreparedStatement recorder(List<String> calls) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    calls.add("%s(%s, %s)".formatted(method.getName(), args[0], args[1]));
+                    return null;
+                });
+    }
+
+    // 다른 테스트에 등록이 새지 않도록
+    @AfterEach
+    void resetDefaults() {
+        ParamBinders.defaults().reset();
+    }
+
+    @Test
+    void t1() throws Exception {
+        List<String> calls = new ArrayList<>();
+        ParamBinders.defaults().bind(recorder(calls), "SELECT 1", new Object[]{1L, 2, "제목", true, Status.OPEN, null});
+
+        assertThat(calls).containsExactly(
+                "setLong(1, 1)",
+                "setInt(2, 2)",
+                "setString(3, 제목)",
+                "setBoolean(4, true)",
+                "setString(5, OPEN)",
+                "setNull(6, 0)");
+    }
+
+    @Test
+    void t2() throws Exception {
+        // 같은 SQL 에 클래스가 바뀌면 계획을 새로 만듦
+        String sql = "UPDATE article SET title = ? WHERE id = ?";
+        List<String> calls = new ArrayList<>();
+        ParamBinders.defaults().bind(recorder(calls), sql, List.of("제목", 1L));
+        ParamBinders.defaults().bind(recorder(calls), sql, List.of("제목", 1L));
+        ParamBinders.defaults().bind(recorder(calls), sql, List.of("제목", 1));
+
+        assertThat(calls).containsExactly(
+                "setString(1, 제목)", "setLong(2, 1)",
+                "setString(1, 제목)", "setLong(2, 1)",
+                "setString(1, 제목)", "setInt(2, 1)");
+    }
+
+    @Test
+    void t3() throws Exception {
+        ParamBinders.defaults().registerConverter(Money.class, money -> BigDecimal.valueOf(money.won()));
+        LocalDateTime now = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        List<String> calls = new ArrayList<>();
+        ParamBinders.defaults().bind(recorder(calls), "INSERT INTO payment SET amount = ?, paidDate = ?", new Object[]{new Money(1000), now});
+
+        assertThat(calls).containsExactly(
+                "setBigDecimal(1, 1000)",
+                "setObject(2, 2025-01-02T03:04:05)");
+    }
+
+    @Test
+    void t4() throws Exception {
+        // SimpleDb 별 레지스트리에 등록한 바인더는 defaults() 에 영향을 주지 않고, 등록하지 않은 클래스는 defaults() 를 따름
+        ParamBinders.defaults().register(Status.class, (ps, index, status) -> ps.setInt(index, status.ordinal()));
+        ParamBinders binders = new ParamBinders();
+        binders.registerConverter(Money.class, money -> BigDecimal.valueOf(money.won()));
+        String sql = "INSERT INTO payment SET amount = ?, status = ?";
+        List<String> calls = new ArrayList<>();
+
+        binders.bind(recorder(calls), sql, new Object[]{new Money(1000), Status.CLOSED});
+        ParamBinders.defaults().bind(recorder(calls), sql, new Object[]{new Money(1000), Status.CLOSED});
+
+        assertThat(calls).containsExactly(
+                "setBigDecimal(1, 1000)", "setInt(2, 1)",
+                "setObject(1, Money[won=1000])", "setInt(2, 1)");
+    }
+
+    @Test
+    void t5() throws Exception {
+        // 계획이 캐시된 뒤에 등록/해제해도 바로 반영
+        String sql = "INSERT INTO payment SET amount = ?";
+        List<String> calls = new ArrayList<>();
+        ParamBinders binders = new ParamBinders();
+
+        binders.bind(recorder(calls), sql, new Object[]{new Money(1000)});
+        binders.registerConverter(Money.class, money -> BigDecimal.valueOf(money.won()));
+        binders.bind(recorder(calls), sql, new Object[]{new Money(1000)});
+        binders.unregister(Money.class);
+        binders.bind(recorder(calls), sql, new Object[]{new Money(1000)});
+
+        assertThat(calls).containsExactly(
+                "setObject(1, Money[won=1000])",
+                "setBigDecimal(1, 1000)",
+                "setObject(1, Money[won=1000])");
+    }
+}
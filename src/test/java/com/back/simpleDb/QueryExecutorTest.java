@@ -0,0 +1,56 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QueryExecutorTest {
+    private static void awaitCounted(QueryExecutor executor, long count) throws InterruptedException {
+        long startedAt = System.nanoTime();
+        while (executor.getCompletedCount() + executor.getFailedCount() + executor.getSkippedCount() < count
+                && System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void t1() throws InterruptedException {
+        // 예외로 끝난 작업은 future 에 예외를 넘기고 실패로 셈
+        try (QueryExecutor executor = new QueryExecutor()) {
+            CompletableFuture<Long> ok = executor.supply(() -> 1L);
+            CompletableFuture<Long> failed = executor.supply(() -> {
+                throw new IllegalStateException("실패");
+            });
+
+            assertThat(ok.join()).isEqualTo(1L);
+            assertThatThrownBy(failed::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            awaitCounted(executor, 2);
+            assertThat(executor.getCompletedCount()).isEqualTo(1);
+            assertThat(executor.getFailedCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void t2() throws InterruptedException {
+        // 실행 전에 취소된 future 의 작업은 실행하지 않고 건너뛴 것으로 셈
+        try (QueryExecutor executor = new QueryExecutor()) {
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            future.cancel(true);
+            executor.supply(future, () -> {
+                throw new IllegalStateException("실행되면 안 됨");
+            });
+
+            awaitCounted(executor, 1);
+            assertThat(executor.getSkippedCount()).isEqualTo(1);
+            assertThat(executor.getCompletedCount()).isZero();
+            assertThat(executor.getFailedCount()).isZero();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueryResultCacheTest {
+    record Row(Long id, String body) {
+    }
+
+    static class Bean {
+        private Long id;
+        private String body;
+
+        Bean(Long id, String body) {
+            this.id = id;
+            this.body = body;
+        }
+    }
+
+    @Test
+    void t1() {
+        // 객체/레코드는 프로퍼티 값만큼 무거움
+        String body = "본문".repeat(10_000);
+
+        assertThat(QueryResultCache.weigh(new Row(1L, body))).isGreaterThan(2L * body.length());
+        assertThat(QueryResultCache.weigh(new Bean(1L, body))).isGreaterThan(2L * body.length());
+        assertThat(QueryResultCache.weigh(List.of(new Row(1L, body), new Row(2L, body)))).isGreaterThan(4L * body.length());
+        assertThat(QueryResultCache.weigh(new Row(1L, "짧음"))).isLessThan(200);
+    }
+
+    @Test
+    void t2() {
+        // 읽는 테이블을 다 알아내지 못한 결과는 어느 테이블에 쓰든 지움
+        QueryResultCache cache = new QueryResultCache();
+        AtomicInteger loads = new AtomicInteger();
+        String sql = "SELECT * FROM JSON_TABLE(?, '$[*]' COLUMNS (id INT PATH '$')) j";
+
+        cache.get(sql, List.of("[1]"), "rows", null, () -> List.of(loads.incrementAndGet()));
+        cache.get(sql, List.of("[1]"), "rows", null, () -> List.of(loads.incrementAndGet()));
+        assertThat(loads).hasValue(1);
+
+        cache.invalidateTable("article");
+        cache.get(sql, List.of("[1]"), "rows", null, () -> List.of(loads.incrementAndGet()));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void t3() {
+        // 메트릭용 크기는 행이 많으면 일부 행으로 어림 (행 크기가 고르면 전부 잰 것과 같음)
+        List<Row> rows = LongStream.rangeClosed(1, 10_000)
+                .mapToObj(id -> new Row(id, "본문"))
+                .toList();
+
+        assertThat(QueryResultCache.estimateWeight(rows)).isEqualTo(QueryResultCache.weigh(rows));
+        assertThat(QueryResultCache.estimateWeight(List.of(new Row(1L, "본문")))).isEqualTo(QueryResultCache.weigh(List.of(new Row(1L, "본문"))));
+    }
+}
@@ -0,0 +1,148 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReadCoalescerTest {
+    private static final String SQL = "SELECT id FROM article WHERE isBlind = ?";
+
+    // 먼저 실행하는 조회를 release 가 열릴 때까지 붙잡아두고, 그 사이에 같은 조회를 하나 더 보냄
+    private static <T> List<T> coalesce(ReadCoalescer readCoalescer, boolean primary, boolean waiterPrimary, AtomicInteger runs,
+                                        List<T> leaderResult, List<T> waiterResult, CountDownLatch release) throws Exception {
+        CompletableFuture<List<T>> leader = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(SQL, List.of(false), "rows", primary, null, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return leaderResult;
+                }));
+        while (readCoalescer.getInFlight() == 0) Thread.onSpinWait();
+
+        CompletableFuture<List<T>> waiter = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(SQL, List.of(false), "rows", waiterPrimary, null, () -> {
+                    runs.incrementAndGet();
+                    return waiterResult;
+                }));
+        Thread.sleep(100);
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+        return waiter.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void t1() throws Exception {
+        ReadCoalescer readCoalescer = new ReadCoalescer();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> original = new ArrayList<>(List.of(3L, 1L, 2L));
+
+        CompletableFuture<List<Long>> leader = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(SQL, List.of(false), "rows", false, null, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return original;
+                }));
+        while (readCoalescer.getInFlight() == 0) Thread.onSpinWait();
+        CompletableFuture<List<Long>> waiter = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(SQL, List.of(false), "rows", false, null, () -> {
+                    runs.incrementAndGet();
+                    return List.of();
+                }));
+        Thread.sleep(100);
+        release.countDown();
+
+        // 먼저 실행한 쪽이 결과를 바꾸려 해도 기다린 쪽 결과는 그대로
+        List<Long> leaderRows = leader.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> leaderRows.sort(null)).isInstanceOf(UnsupportedOperationException.class);
+        original.clear();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).containsExactly(3L, 1L, 2L);
+        assertThat(leaderRows).containsExactly(3L, 1L, 2L);
+        assertThat(runs).hasValue(1);
+        assertThat(readCoalescer.getCoalesced()).isEqualTo(1);
+    }
+
+    @Test
+    void t2() throws Exception {
+        // 복제본 조회에 주 DB 조회가 합류하지 않음
+        ReadCoalescer readCoalescer = new ReadCoalescer();
+        AtomicInteger runs = new AtomicInteger();
+
+        List<String> waiterRows = coalesce(readCoalescer, false, true, runs, List.of("replica"), List.of("primary"), new CountDownLatch(1));
+
+        assertThat(waiterRows).containsExactly("primary");
+        assertThat(runs).hasValue(2);
+        assertThat(readCoalescer.getCoalesced()).isZero();
+    }
+
+    @Test
+    void t3() throws Exception {
+        // 실행 중에 읽는 테이블에 쓰기가 있으면 합류하지 않음
+        ReadCoalescer readCoalescer = new ReadCoalescer();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> leader = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(SQL, List.of(false), "rows", true, null, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return List.of("old");
+                }));
+        while (readCoalescer.getInFlight() == 0) Thread.onSpinWait();
+        readCoalescer.tableWritten("article");
+
+        List<String> rows = readCoalescer.execute(SQL, List.of(false), "rows", true, null, () -> {
+            runs.incrementAndGet();
+            return List.of("new");
+        });
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+
+        assertThat(rows).containsExactly("new");
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void t4() throws Exception {
+        // 쉼표로 나열한 두 번째 테이블에 쓰기가 있어도 합류하지 않음
+        String sql = "SELECT a.id FROM article a, comment c WHERE a.id = c.articleId";
+        ReadCoalescer readCoalescer = new ReadCoalescer();
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<String>> leader = CompletableFuture.supplyAsync(() ->
+                readCoalescer.execute(sql, List.of(), "rows", true, null, () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return List.of("old");
+                }));
+        while (readCoalescer.getInFlight() == 0) Thread.onSpinWait();
+        readCoalescer.tableWritten("comment");
+
+        List<String> rows = readCoalescer.execute(sql, List.of(), "rows", true, null, () -> {
+            runs.incrementAndGet();
+            return List.of("new");
+        });
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+
+        assertThat(rows).containsExactly("new");
+        assertThat(runs).hasValue(2);
+    }
+}
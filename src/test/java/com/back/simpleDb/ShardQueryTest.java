@@ -0,0 +1,47 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShardQueryTest {
+    @Test
+    void t1() {
+        ShardQuery query = ShardQuery.parse("SELECT * FROM article WHERE isBlind = ? ORDER BY createdDate DESC, a.id LIMIT ? OFFSET ?", List.of(false, 10, 20));
+
+        assertThat(query.getShardSql()).isEqualTo("SELECT * FROM article WHERE isBlind = ? ORDER BY createdDate DESC, a.id LIMIT 30");
+        assertThat(query.getShardParams()).containsExactly(false);
+        assertThat(query.getOrderBy()).containsExactly(
+                new ShardQuery.OrderKey("createdDate", true),
+                new ShardQuery.OrderKey("id", false));
+        assertThat(query.getOffset()).isEqualTo(20);
+        assertThat(query.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void t2() {
+        ShardQuery query = ShardQuery.parse("SELECT id FROM article WHERE id IN (SELECT id FROM article ORDER BY id LIMIT 3) LIMIT 5, 10", List.of());
+
+        assertThat(query.getShardSql()).isEqualTo("SELECT id FROM article WHERE id IN (SELECT id FROM article ORDER BY id LIMIT 3) LIMIT 15");
+        assertThat(query.getOrderBy()).isEmpty();
+        assertThat(query.getOffset()).isEqualTo(5);
+        assertThat(query.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void t3() {
+        assertThat(ShardQuery.parse("SELECT COUNT(*) FROM article", List.of()).getAggregate()).isEqualTo("COUNT");
+        assertThat(ShardQuery.parse("SELECT max(id) AS maxId FROM article", List.of()).getAggregate()).isEqualTo("MAX");
+        assertThat(ShardQuery.parse("SELECT isBlind, COUNT(*) FROM article GROUP BY isBlind", List.of()).getAggregate()).isNull();
+        assertThat(ShardQuery.parse("SELECT COUNT(*) FROM article GROUP BY isBlind", List.of()).getAggregate()).isNull();
+    }
+
+    @Test
+    void t4() {
+        assertThatThrownBy(() -> ShardQuery.parse("SELECT * FROM article ORDER BY RAND()", List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
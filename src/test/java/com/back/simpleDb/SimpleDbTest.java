@@ -1,15 +1,29 @@
 package com.back.simpleDb;
 
 import com.back.Article;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.*;
 
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @TestMethodOrder(MethodOrderer.MethodName.class)
 public class SimpleDbTest {
@@ -384,153 +398,951 @@ public class SimpleDbTest {
         });
     }
 
-    //
-//    @Test
-//    @DisplayName("selectRow, Article")
-//    public void t016() {
-//        Sql sql = simpleDb.genSql();
-//        /*
-//        == rawSql ==
-//        SELECT *
-//        FROM article
-//        WHERE id = 1
-//        */
-//        sql.append("SELECT * FROM article WHERE id = 1");
-//        Article article = sql.selectRow(Article.class);
-//
-//        Long id = 1L;
-//
-//        assertThat(article.getId()).isEqualTo(id);
-//        assertThat(article.getTitle()).isEqualTo("제목%d".formatted(id));
-//        assertThat(article.getBody()).isEqualTo("내용%d".formatted(id));
-//        assertThat(article.getCreatedDate()).isInstanceOf(LocalDateTime.class);
-//        assertThat(article.getCreatedDate()).isNotNull();
-//        assertThat(article.getModifiedDate()).isInstanceOf(LocalDateTime.class);
-//        assertThat(article.getModifiedDate()).isNotNull();
-//        assertThat(article.isBlind()).isEqualTo(false);
-//    }
-//
-//    // 테스트 메서드를 정의하고, 테스트 이름을 지정합니다.
-//    @Test
-//    @DisplayName("use in multi threading")
-//    public void t017() throws InterruptedException {
-//        // 쓰레드 풀의 크기를 정의합니다.
-//        int numberOfThreads = 10;
-//
-//        // 고정 크기의 쓰레드 풀을 생성합니다.
-//        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
-//
-//        // 성공한 작업의 수를 세는 원자적 카운터를 생성합니다.
-//        AtomicInteger successCounter = new AtomicInteger(0);
-//
-//        // 동시에 실행되는 작업의 수를 세는 데 사용되는 래치를 생성합니다.
-//        CountDownLatch latch = new CountDownLatch(numberOfThreads);
-//
-//        // 각 쓰레드에서 실행될 작업을 정의합니다.
-//        Runnable task = () -> {
-//            try {
-//                // SimpleDB에서 SQL 객체를 생성합니다.
-//                Sql sql = simpleDb.genSql();
-//
-//                // SQL 쿼리를 작성합니다.
-//                sql.append("SELECT * FROM article WHERE id = 1");
-//
-//                // 쿼리를 실행하여 결과를 Article 객체로 매핑합니다.
-//                Article article = sql.selectRow(Article.class);
-//
-//                // 기대하는 Article 객체의 ID를 정의합니다.
-//                Long id = 1L;
-//
-//                // Article 객체의 값이 기대하는 값과 일치하는지 확인하고,
-//                // 일치하는 경우 성공 카운터를 증가시킵니다.
-//                if (article.getId() == id &&
-//                        article.getTitle().equals("제목%d".formatted(id)) &&
-//                        article.getBody().equals("내용%d".formatted(id)) &&
-//                        article.getCreatedDate() != null &&
-//                        article.getModifiedDate() != null &&
-//                        !article.isBlind()) {
-//                    successCounter.incrementAndGet();
-//                }
-//            } finally {
-//                // 커넥션 종료
-//                simpleDb.closeConnection();
-//                // 작업이 완료되면 래치 카운터를 감소시킵니다.
-//                latch.countDown();
-//            }
-//        };
-//
-//        // 쓰레드 풀에서 쓰레드를 할당받아 작업을 실행합니다.
-//        for (int i = 0; i < numberOfThreads; i++) {
-//            executorService.submit(task);
-//        }
-//
-//        // 모든 작업이 완료될 때까지 대기하거나, 최대 10초 동안 대기합니다.
-//        latch.await(10, TimeUnit.SECONDS);
-//
-//        // 쓰레드 풀을 종료시킵니다.
-//        executorService.shutdown();
-//
-//        // 성공 카운터가 쓰레드 수와 동일한지 확인합니다.
-//        assertThat(successCounter.get()).isEqualTo(numberOfThreads);
-//    }
-//
-//    @Test
-//    @DisplayName("rollback")
-//    public void t018() {
-//        // SimpleDB에서 SQL 객체를 생성합니다.
-//        long oldCount = simpleDb.genSql()
-//                .append("SELECT COUNT(*)")
-//                .append("FROM article")
-//                .selectLong();
-//
-//        // 트랜잭션을 시작합니다.
-//        simpleDb.startTransaction();
-//
-//        simpleDb.genSql()
-//                .append("INSERT INTO article ")
-//                .append("(createdDate, modifiedDate, title, body)")
-//                .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
-//                .insert();
-//
-//        simpleDb.rollback();
-//
-//        long newCount = simpleDb.genSql()
-//                .append("SELECT COUNT(*)")
-//                .append("FROM article")
-//                .selectLong();
-//
-//        assertThat(newCount).isEqualTo(oldCount);
-//    }
-//
-//    @Test
-//    @DisplayName("commit")
-//    public void t019() {
-//        // SimpleDB에서 SQL 객체를 생성합니다.
-//        long oldCount = simpleDb.genSql()
-//                .append("SELECT COUNT(*)")
-//                .append("FROM article")
-//                .selectLong();
-//
-//        // 트랜잭션을 시작합니다.
-//        simpleDb.startTransaction();
-//
-//        simpleDb.genSql()
-//                .append("INSERT INTO article ")
-//                .append("(createdDate, modifiedDate, title, body)")
-//                .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
-//                .insert();
-//
-//        simpleDb.commit();
-//
-//        long newCount = simpleDb.genSql()
-//                .append("SELECT COUNT(*)")
-//                .append("FROM article")
-//                .selectLong();
-//
-//        assertThat(newCount).isEqualTo(oldCount + 1);
-//    }
+    @Test
+    @DisplayName("selectRow, Article")
+    public void t016() {
+        Sql sql = simpleDb.genSql();
+        /*
+        == rawSql ==
+        SELECT *
+        FROM article
+        WHERE id = 1
+        */
+        sql.append("SELECT * FROM article WHERE id = 1");
+        Article article = sql.selectRow(Article.class);
+
+        Long id = 1L;
+
+        assertThat(article.getId()).isEqualTo(id);
+        assertThat(article.getTitle()).isEqualTo("제목%d".formatted(id));
+        assertThat(article.getBody()).isEqualTo("내용%d".formatted(id));
+        assertThat(article.getCreatedDate()).isInstanceOf(LocalDateTime.class);
+        assertThat(article.getCreatedDate()).isNotNull();
+        assertThat(article.getModifiedDate()).isInstanceOf(LocalDateTime.class);
+        assertThat(article.getModifiedDate()).isNotNull();
+        assertThat(article.isBlind()).isEqualTo(false);
+    }
+
+    // 테스트 메서드를 정의하고, 테스트 이름을 지정합니다.
+    @Test
+    @DisplayName("use in multi threading")
+    public void t017() throws InterruptedException {
+        // 쓰레드 풀의 크기를 정의합니다.
+        int numberOfThreads = 10;
+
+        // 고정 크기의 쓰레드 풀을 생성합니다.
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+
+        // 성공한 작업의 수를 세는 원자적 카운터를 생성합니다.
+        AtomicInteger successCounter = new AtomicInteger(0);
+
+        // 동시에 실행되는 작업의 수를 세는 데 사용되는 래치를 생성합니다.
+        CountDownLatch latch = new CountDownLatch(numberOfThreads);
+
+        // 각 쓰레드에서 실행될 작업을 정의합니다.
+        Runnable task = () -> {
+            try {
+                // SimpleDB에서 SQL 객체를 생성합니다.
+                Sql sql = simpleDb.genSql();
+
+                // SQL 쿼리를 작성합니다.
+                sql.append("SELECT * FROM article WHERE id = 1");
+
+                // 쿼리를 실행하여 결과를 Article 객체로 매핑합니다.
+                Article article = sql.selectRow(Article.class);
+
+                // 기대하는 Article 객체의 ID를 정의합니다.
+                Long id = 1L;
+
+                // Article 객체의 값이 기대하는 값과 일치하는지 확인하고,
+                // 일치하는 경우 성공 카운터를 증가시킵니다.
+                if (article.getId() == id &&
+                        article.getTitle().equals("제목%d".formatted(id)) &&
+                        article.getBody().equals("내용%d".formatted(id)) &&
+                        article.getCreatedDate() != null &&
+                        article.getModifiedDate() != null &&
+                        !article.isBlind()) {
+                    successCounter.incrementAndGet();
+                }
+            } finally {
+                // 커넥션 종료
+                simpleDb.closeConnection();
+                // 작업이 완료되면 래치 카운터를 감소시킵니다.
+                latch.countDown();
+            }
+        };
+
+        // 쓰레드 풀에서 쓰레드를 할당받아 작업을 실행합니다.
+        for (int i = 0; i < numberOfThreads; i++) {
+            executorService.submit(task);
+        }
+
+        // 모든 작업이 완료될 때까지 대기하거나, 최대 10초 동안 대기합니다.
+        latch.await(10, TimeUnit.SECONDS);
+
+        // 쓰레드 풀을 종료시킵니다.
+        executorService.shutdown();
+
+        // 성공 카운터가 쓰레드 수와 동일한지 확인합니다.
+        assertThat(successCounter.get()).isEqualTo(numberOfThreads);
+    }
+
+    @Test
+    @DisplayName("rollback")
+    public void t018() {
+        // SimpleDB에서 SQL 객체를 생성합니다.
+        long oldCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        // 트랜잭션을 시작합니다.
+        simpleDb.startTransaction();
+
+        simpleDb.genSql()
+                .append("INSERT INTO article ")
+                .append("(createdDate, modifiedDate, title, body)")
+                .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
+                .insert();
+
+        simpleDb.rollback();
+
+        long newCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        assertThat(newCount).isEqualTo(oldCount);
+    }
+
+    @Test
+    @DisplayName("commit")
+    public void t019() {
+        // SimpleDB에서 SQL 객체를 생성합니다.
+        long oldCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        // 트랜잭션을 시작합니다.
+        simpleDb.startTransaction();
+
+        simpleDb.genSql()
+                .append("INSERT INTO article ")
+                .append("(createdDate, modifiedDate, title, body)")
+                .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
+                .insert();
+
+        simpleDb.commit();
+
+        long newCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        assertThat(newCount).isEqualTo(oldCount + 1);
+    }
+
+    @Test
+    @DisplayName("커넥션 풀, 동시성보다 많은 커넥션을 만들지 않음")
+    public void t020() throws InterruptedException {
+        int numberOfThreads = 30;
+        int maxSize = simpleDb.getPool().getMaxSize();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch latch = new CountDownLatch(numberOfThreads);
+        AtomicInteger successCounter = new AtomicInteger(0);
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            executorService.submit(() -> {
+                try {
+                    long count = simpleDb.genSql()
+                            .append("SELECT COUNT(*)")
+                            .append("FROM article")
+                            .selectLong();
+                    if (count == 6) successCounter.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        assertThat(successCounter.get()).isEqualTo(numberOfThreads);
+        // 스레드는 30개지만 커넥션은 풀 최대 크기를 넘지 않고, 모두 반납됨
+        assertThat(simpleDb.getPool().getTotalConnections()).isLessThanOrEqualTo(maxSize);
+        assertThat(simpleDb.getPool().getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("statement 캐시, 같은 SQL 은 다시 prepare 하지 않음")
+    public void t021() {
+        StatementCacheStats stats = simpleDb.getPool().getStatementCacheStats();
+
+        simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString();
+        long hits = stats.getHits();
+        long misses = stats.getMisses();
+
+        String title = simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 2).selectString();
+
+        assertThat(title).isEqualTo("제목2");
+        assertThat(stats.getHits()).isEqualTo(hits + 1);
+        assertThat(stats.getMisses()).isEqualTo(misses);
+    }
+
+    @Test
+    @DisplayName("batch, 여러 행을 묶어서 insert")
+    public void t022() {
+        // rewriteBatchedStatements 로 VALUES (...), (...) 한 문장으로 합쳐짐
+        Batch batch = simpleDb.batch("""
+                INSERT INTO article (createdDate, modifiedDate, title, `body`)
+                VALUES (NOW(), NOW(), ?, ?)
+                """)
+                .batchSize(3)
+                .returnGeneratedKeys();
+
+        IntStream.rangeClosed(7, 13).forEach(no -> batch.add("제목%d".formatted(no), "내용%d".formatted(no)));
+
+        Batch.BatchResult result = batch.execute();
+
+        assertThat(result.affectedCounts()).hasSize(7);
+        assertThat(result.generatedKeys()).containsExactly(7, 8, 9, 10, 11, 12, 13);
+
+        long count = simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+        assertThat(count).isEqualTo(13);
+    }
+
+    @Test
+    @DisplayName("stream, 결과를 한 행씩 읽고 닫으면 커넥션 반납")
+    public void t023() {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT * FROM article ORDER BY id ASC");
+
+        List<String> titles;
+        try (Stream<Map<String, Object>> rows = sql.stream()) {
+            titles = rows.map(row -> (String) row.get("title")).toList();
+        }
+
+        assertThat(titles).containsExactly("제목1", "제목2", "제목3", "제목4", "제목5", "제목6");
+        assertThat(simpleDb.getPool().getActiveConnections()).isEqualTo(0);
+
+        AtomicInteger blindCount = new AtomicInteger(0);
+        simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .forEachRow(row -> {
+                    if ((Boolean) row.get("isBlind")) blindCount.incrementAndGet();
+                });
+
+        assertThat(blindCount.get()).isEqualTo(3);
+    }
+
+    record ArticleSummary(long id, String title, boolean isBlind) {
+    }
+
+    @Test
+    @DisplayName("selectRows, 레코드로 매핑")
+    public void t024() {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT id, title, isBlind FROM article ORDER BY id DESC LIMIT 2");
+
+        List<ArticleSummary> summaries = sql.selectRows(ArticleSummary.class);
+
+        assertThat(summaries).containsExactly(
+                new ArticleSummary(6, "제목6", true),
+                new ArticleSummary(5, "제목5", true)
+        );
+    }
+
+    @Test
+    @DisplayName("selectTable, 컬럼 단위 결과")
+    public void t025() {
+        Sql sql = simpleDb.genSql();
+        sql.append("SELECT id, title FROM article WHERE id <= 3 ORDER BY id ASC");
+
+        ResultTable table = sql.selectTable();
+
+        assertThat(table.rowCount()).isEqualTo(3);
+        assertThat(table.longColumn("id")).containsExactly(1, 2, 3);
+        assertThat(table.getObject(1, "title")).isEqualTo("제목2");
+    }
+
+    @Test
+    @DisplayName("inTransaction, 중첩 트랜잭션은 savepoint 까지만 롤백")
+    public void t026() {
+        long oldCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        simpleDb.runInTransaction(db -> {
+            db.genSql()
+                    .append("INSERT INTO article ")
+                    .append("(createdDate, modifiedDate, title, body)")
+                    .appendIn("VALUES (NOW(), NOW(), ?)", "바깥 제목", "바깥 내용")
+                    .insert();
+
+            try {
+                db.runInTransaction(inner -> {
+                    inner.genSql()
+                            .append("INSERT INTO article ")
+                            .append("(createdDate, modifiedDate, title, body)")
+                            .appendIn("VALUES (NOW(), NOW(), ?)", "안쪽 제목", "안쪽 내용")
+                            .insert();
+                    throw new IllegalStateException("안쪽 실패");
+                });
+            } catch (IllegalStateException ignored) {
+            }
+        });
+
+        long newCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        assertThat(newCount).isEqualTo(oldCount + 1);
+        assertThat(simpleDb.isInTransaction()).isFalse();
+        assertThat(simpleDb.getPool().getActiveConnections()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("가상 스레드, 트랜잭션 핸들은 스레드가 아니라 핸들에 묶임")
+    public void t027() throws Exception {
+        long oldCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        Transaction tx = simpleDb.beginTransaction();
+
+        // 다른 (가상) 스레드에서 같은 트랜잭션으로 insert
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            executorService.submit(() -> tx.genSql()
+                    .append("INSERT INTO article ")
+                    .append("(createdDate, modifiedDate, title, body)")
+                    .appendIn("VALUES (NOW(), NOW(), ?)", "새 제목", "새 내용")
+                    .insert()).get();
+        }
+
+        long countInTx = tx.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+        tx.rollback();
+
+        long newCount = simpleDb.genSql()
+                .append("SELECT COUNT(*)")
+                .append("FROM article")
+                .selectLong();
+
+        assertThat(countInTx).isEqualTo(oldCount + 1);
+        assertThat(newCount).isEqualTo(oldCount);
+    }
+
+    @Test
+    @DisplayName("가상 스레드, 요청이 많아도 커넥션은 풀 크기 안에서 순서대로 나눠씀")
+    public void t028() {
+        int numberOfTasks = 1_000;
+        AtomicInteger successCounter = new AtomicInteger(0);
+
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            IntStream.range(0, numberOfTasks).forEach(i -> executorService.submit(() -> {
+                long count = simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+                if (count == 6) successCounter.incrementAndGet();
+            }));
+        }
+
+        assertThat(successCounter.get()).isEqualTo(numberOfTasks);
+        assertThat(simpleDb.getPool().getTotalConnections()).isLessThanOrEqualTo(simpleDb.getPool().getMaxSize());
+    }
+
+    @Test
+    @DisplayName("비동기 쿼리, 서로 관계없는 조회를 동시에 실행")
+    public void t029() {
+        CompletableFuture<Long> countFuture = simpleDb.genSql()
+                .append("SELECT COUNT(*) FROM article")
+                .selectLongAsync();
+        CompletableFuture<String> titleFuture = simpleDb.genSql()
+                .append("SELECT title FROM article WHERE id = ?", 1)
+                .selectStringAsync();
+        CompletableFuture<List<Article>> blindFuture = simpleDb.genSql()
+                .append("SELECT * FROM article WHERE isBlind = ?", true)
+                .selectRowsAsync(Article.class);
+
+        CompletableFuture.allOf(countFuture, titleFuture, blindFuture).join();
+
+        assertThat(countFuture.join()).isEqualTo(6);
+        assertThat(titleFuture.join()).isEqualTo("제목1");
+        assertThat(blindFuture.join()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("비동기 쿼리, future 를 취소하면 실행중인 쿼리도 취소")
+    public void t030() throws InterruptedException {
+        long startedAt = System.nanoTime();
+        CompletableFuture<Long> future = simpleDb.genSql()
+                .append("SELECT SLEEP(10)")
+                .selectLongAsync();
+
+        Thread.sleep(300);
+        future.cancel(true);
+
+        while (simpleDb.getQueryExecutor().getActiveCount() > 0
+                && System.nanoTime() - startedAt < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(50);
+        }
+
+        assertThat(future.isCancelled()).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt)).isLessThan(5);
+    }
+
+    @Test
+    @DisplayName("결과 캐시, 같은 조회는 캐시에서 읽고 쓰기가 있으면 무효화")
+    public void t031() {
+        QueryResultCache resultCache = new QueryResultCache();
+        simpleDb.setResultCache(resultCache);
+        try {
+            long count1 = simpleDb.genSql().append("SELECT COUNT(*) FROM article").cached().selectLong();
+            long count2 = simpleDb.genSql().append("SELECT  COUNT(*)\nFROM article").cached().selectLong();
+
+            assertThat(count1).isEqualTo(6);
+            assertThat(count2).isEqualTo(6);
+            assertThat(resultCache.getHits()).isEqualTo(1);
+            assertThat(resultCache.getMisses()).isEqualTo(1);
+
+            simpleDb.run("DELETE FROM article WHERE id = ?", 1);
+
+            long count3 = simpleDb.genSql().append("SELECT COUNT(*) FROM article").cached().selectLong();
+
+            assertThat(count3).isEqualTo(5);
+            assertThat(resultCache.getInvalidations()).isEqualTo(1);
+        } finally {
+            simpleDb.setResultCache(null);
+        }
+    }
+
+    @Test
+    @DisplayName("쿼리 리스너, Micrometer 메트릭")
+    public void t032() {
+        List<QueryEvent> events = new CopyOnWriteArrayList<>();
+        QueryListener listener = events::add;
+        simpleDb.addQueryListener(listener);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerQueryMetrics metrics = MicrometerQueryMetrics.bindTo(simpleDb, registry);
+        try {
+            simpleDb.genSql()
+                    .append("SELECT * FROM article")
+                    .appendIn("WHERE id IN (?)", 1, 2, 3)
+                    .selectRows();
+            simpleDb.genSql()
+                    .append("SELECT * FROM article")
+                    .appendIn("WHERE id IN (?)", 4, 5)
+                    .selectRows();
+
+            assertThat(events).hasSize(2);
+            QueryEvent event = events.get(0);
+            assertThat(event.isSuccess()).isTrue();
+            assertThat(event.rows()).isEqualTo(3);
+            assertThat(event.params()).containsExactly(1, 2, 3);
+            assertThat(event.mappedBytes()).isPositive();
+            assertThat(event.elapsedNanos()).isGreaterThanOrEqualTo(event.poolWaitNanos());
+            assertThat(event.getNormalizedSql()).isEqualTo("SELECT * FROM article WHERE id IN (?...)");
+
+            // IN 목록 길이가 달라도 같은 타이머로 집계됨
+            assertThat(registry.get("simpledb.query")
+                    .tag("sql", "SELECT * FROM article WHERE id IN (?...)")
+                    .tag("outcome", "success")
+                    .timer().count()).isEqualTo(2);
+            assertThat(registry.get("simpledb.pool.connections").tag("state", "total").gauge().value()).isPositive();
+        } finally {
+            simpleDb.removeQueryListener(listener);
+            simpleDb.removeQueryListener(metrics);
+        }
+    }
+
+    @Test
+    @DisplayName("SqlTemplate")
+    public void t033() {
+        SqlTemplate template = SqlTemplate.of("SELECT COUNT(*) FROM article WHERE id IN (:ids) AND isBlind = :isBlind");
+
+        long count1 = simpleDb.genSql(template, List.of(1, 2, 3, 4), false).selectLong();
+        long count2 = simpleDb.genSql(template, new Object[]{4, 5, 6}, true).selectLong();
+
+        assertThat(count1).isEqualTo(3);
+        assertThat(count2).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("긴 IN 목록은 나눠서 실행")
+    public void t034() {
+        simpleDb.setMaxInListSize(2);
+        try {
+            Long[] ids = {1L, 2L, 3L, 4L, 5L};
+
+            List<Long> foundIds = simpleDb.genSql()
+                    .append("SELECT id FROM article")
+                    .appendIn("WHERE id IN (?)", (Object[]) ids)
+                    .selectLongs();
+
+            int affectedRows = simpleDb.genSql()
+                    .append("UPDATE article SET title = ?", "수정")
+                    .appendIn("WHERE id IN (?)", (Object[]) ids)
+                    .update();
+
+            long count = simpleDb.genSql()
+                    .append("SELECT COUNT(*) FROM article")
+                    .appendIn("WHERE id IN (?)", (Object[]) ids)
+                    .selectLong();
+
+            assertThat(foundIds).containsExactlyInAnyOrder(ids);
+            assertThat(affectedRows).isEqualTo(5);
+            // 집계는 나누지 않고 한 번에 실행
+            assertThat(count).isEqualTo(5);
+        } finally {
+            simpleDb.setMaxInListSize(1_000);
+        }
+    }
+
+    @Test
+    @DisplayName("복제본 조회, 쓰기 직후에는 주 DB 에서 조회")
+    public void t035() {
+        // 같은 DB 를 복제본으로 등록해서 어느 풀로 갔는지만 확인
+        try (SimpleDb db = new SimpleDb("localhost", "root", "root123414", "simpleDb__test")) {
+            ConnectionPool replica = db.addReplica("localhost:3306", "simpleDb__test");
+            db.setReadYourWritesWindowMillis(60_000);
+            StatementCacheStats replicaStats = replica.getStatementCacheStats();
+
+            db.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+            long replicaQueries1 = replicaStats.getHits() + replicaStats.getMisses();
+
+            db.genSql().append("SELECT COUNT(*) FROM article").onPrimary().selectLong();
+            db.genSql().append("SELECT id FROM article WHERE id = ? FOR UPDATE", 1).selectLong();
+            long replicaQueries2 = replicaStats.getHits() + replicaStats.getMisses();
+
+            db.genSql().append("UPDATE article SET title = ? WHERE id = ?", "수정", 1).update();
+            String title = db.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString();
+            long replicaQueries3 = replicaStats.getHits() + replicaStats.getMisses();
+
+            assertThat(replicaQueries1).isEqualTo(1);
+            assertThat(replicaQueries2).isEqualTo(1);
+            assertThat(replicaQueries3).isEqualTo(1);
+            assertThat(title).isEqualTo("수정");
+        }
+    }
+
+    @Test
+    @DisplayName("insertInto, 여러 행 INSERT 와 upsert")
+    public void t036() {
+        LocalDateTime now = LocalDateTime.now();
+
+        long[] ids = simpleDb.insertInto("article")
+                .columns("createdDate", "modifiedDate", "title", "body")
+                .values(now, now, "제목7", "내용7")
+                .values(now, now, "제목8", "내용8")
+                .values(now, now, "제목9", "내용9")
+                .maxRowsPerStatement(2)
+                .execute();
+
+        assertThat(ids).containsExactly(7, 8, 9);
+
+        // 수정된 행(1) 과 새로 들어간 행(10, 11) 이 섞인 upsert 는 id 를 돌려주지 않음
+        long[] upsertIds = simpleDb.insertInto("article")
+                .columns("id", "createdDate", "modifiedDate", "title", "body")
+                .values(1, now, now, "새 제목1", "내용1")
+                .values(10, now, now, "제목10", "내용10")
+                .values(11, now, now, "제목11", "내용11")
+                .onDuplicateKeyUpdate("title")
+                .execute();
+
+        List<String> titles = simpleDb.genSql()
+                .append("SELECT title FROM article")
+                .appendIn("WHERE id IN (?)", 1, 10)
+                .append("ORDER BY id")
+                .selectRows()
+                .stream()
+                .map(row -> (String) row.get("title"))
+                .toList();
+        long count = simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+
+        assertThat(upsertIds).containsExactly(0, 0, 0);
+        assertThat(titles).containsExactly("새 제목1", "제목10");
+        assertThat(count).isEqualTo(11);
+    }
+
+    @Test
+    @DisplayName("pages, 키셋 페이지 조회")
+    public void t037() {
+        List<List<Map<String, Object>>> pages = new ArrayList<>();
+        simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .pages("id", 4)
+                .forEach(pages::add);
+
+        List<Long> notBlindIds = simpleDb.genSql()
+                .append("SELECT * FROM article")
+                .append("WHERE isBlind = ?", false)
+                .pages(Article.class, "id", 2)
+                .prefetch()
+                .rows()
+                .map(Article::getId)
+                .toList();
+
+        assertThat(pages).hasSize(2);
+        assertThat(pages.get(0)).extracting(row -> row.get("id")).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(pages.get(1)).extracting(row -> row.get("id")).containsExactly(5L, 6L);
+        assertThat(notBlindIds).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("selectLongArray, selectIntArray, selectLongStream")
+    public void t038() {
+        long[] ids = simpleDb.genSql()
+                .append("SELECT id FROM article ORDER BY id")
+                .selectLongArray();
+        int[] notBlindIds = simpleDb.genSql()
+                .append("SELECT id FROM article")
+                .append("WHERE isBlind = ?", false)
+                .append("ORDER BY id")
+                .selectIntArray();
+        long sum;
+        try (LongStream stream = simpleDb.genSql().append("SELECT id FROM article").selectLongStream()) {
+            sum = stream.sum();
+        }
+        Long nullValue = simpleDb.genSql().append("SELECT NULL").selectLong();
+        Long count = simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(notBlindIds).containsExactly(1, 2, 3);
+        assertThat(sum).isEqualTo(21L);
+        assertThat(nullValue).isNull();
+        assertThat(count).isEqualTo(6L);
+    }
+
+    @Test
+    @DisplayName("엔티티 캐시, id 조회는 캐시에서 읽고 그 id 를 바꾸면 무효화")
+    public void t039() {
+        EntityCache entityCache = new EntityCache().register(Article.class, "article");
+        simpleDb.setEntityCache(entityCache);
+        try {
+            Article article1 = simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(Article.class);
+            Article article2 = simpleDb.genSql().append("SELECT *\nFROM article WHERE id = ?", 1L).selectRow(Article.class);
+            simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 2).selectRow(Article.class);
+
+            assertThat(article2).isSameAs(article1);
+            assertThat(entityCache.getHits()).isEqualTo(1);
+            assertThat(entityCache.getMisses()).isEqualTo(2);
+
+            simpleDb.genSql().append("UPDATE article SET title = ? WHERE id = ?", "새 제목", 1).update();
+
+            Article article3 = simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(Article.class);
+
+            assertThat(article3.getTitle()).isEqualTo("새 제목");
+            assertThat(entityCache.getInvalidations()).isEqualTo(1);
+            assertThat(entityCache.size()).isEqualTo(2);
+        } finally {
+            simpleDb.setEntityCache(null);
+        }
+    }
+
+    @Test
+    @DisplayName("timeout, Deadline, 기한이 지나면 쿼리를 취소하고 시간 초과로 기록")
+    public void t040() {
+        List<QueryEvent> events = new CopyOnWriteArrayList<>();
+        QueryListener listener = events::add;
+        simpleDb.addQueryListener(listener);
+        try {
+            long startedAt = System.nanoTime();
+            assertThatThrownBy(() -> simpleDb.genSql()
+                    .append("SELECT SLEEP(10)")
+                    .timeout(Duration.ofMillis(300))
+                    .selectLong())
+                    .hasCauseInstanceOf(SQLTimeoutException.class);
+
+            assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt)).isLessThan(5);
+
+            try (Deadline.Scope scope = Deadline.after(Duration.ZERO).bind()) {
+                assertThatThrownBy(() -> simpleDb.genSql().append("SELECT 1").selectLong())
+                        .hasCauseInstanceOf(SQLTimeoutException.class);
+            }
+
+            assertThat(Deadline.current()).isNull();
+            assertThat(simpleDb.genSql().append("SELECT 1").selectLong()).isEqualTo(1L);
+            assertThat(events).extracting(QueryEvent::isTimeout).containsExactly(true, true, false);
+        } finally {
+            simpleDb.removeQueryListener(listener);
+        }
+    }
+
+    @Test
+    @DisplayName("ShardedSimpleDb, 모든 샤드에 보내고 ORDER BY/LIMIT, COUNT 를 합침")
+    public void t041() {
+        // 같은 DB 를 두 샤드로 써서 샤드마다 같은 6행이 있는 것처럼 확인
+        try (ShardedSimpleDb shardedDb = new ShardedSimpleDb(List.of(
+                new SimpleDb("localhost", "root", "root123414", "simpleDb__test"),
+                new SimpleDb("localhost", "root", "root123414", "simpleDb__test")))) {
+            List<ScatterGatherEvent> events = new CopyOnWriteArrayList<>();
+            shardedDb.addScatterGatherListener(events::add);
+
+            List<Map<String, Object>> rows = shardedDb.genSql()
+                    .append("SELECT id, title FROM article")
+                    .append("ORDER BY id DESC")
+                    .append("LIMIT ?", 3)
+                    .selectRows();
+            long count = shardedDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+            List<Long> ids;
+            try (Stream<Article> articles = shardedDb.genSql().append("SELECT * FROM article ORDER BY id").stream(Article.class)) {
+                ids = articles.map(Article::getId).toList();
+            }
+            Article article = shardedDb.genSql(3L).append("SELECT * FROM article WHERE id = ?", 3).selectRow(Article.class);
+
+            assertThat(rows).extracting(row -> row.get("id")).containsExactly(6L, 6L, 5L);
+            assertThat(count).isEqualTo(12);
+            assertThat(ids).containsExactly(1L, 1L, 2L, 2L, 3L, 3L, 4L, 4L, 5L, 5L, 6L, 6L);
+            assertThat(article.getTitle()).isEqualTo("제목3");
+            assertThat(shardedDb.shard(3L)).isSameAs(shardedDb.getShards().get(1));
+            assertThat(events).hasSize(3);
+            assertThat(events).allMatch(event -> event.isSuccess() && event.shardElapsedNanos().length == 2);
+        }
+    }
+
+    @Test
+    @DisplayName("runScript, runAll")
+    public void t042() {
+        Script.Result created = simpleDb.runScript("""
+                DROP TABLE IF EXISTS script_test;
+                -- 주석 안의 ; 는 무시
+                CREATE TABLE script_test (
+                    id INT UNSIGNED NOT NULL PRIMARY KEY AUTO_INCREMENT,
+                    name VARCHAR(100) NOT NULL
+                );
+                INSERT INTO script_test SET name = 'a;b';
+                INSERT INTO script_test SET name = 'c';
+                """);
+
+        Script.Result result = simpleDb.script()
+                .add("INSERT INTO script_test SET name = ?", "d")
+                .add("INSERT INTO script_test SET name = ?", "e")
+                .add("UPDATE script_test SET name = CONCAT(name, '!') WHERE id > ?", 2)
+                .add("SELECT name FROM script_test ORDER BY id")
+                .execute();
+
+        assertThat(created.statements()).hasSize(4);
+        assertThat(result.get(0).updateCount()).isEqualTo(1);
+        assertThat(result.get(2).updateCount()).isEqualTo(2);
+        assertThat(result.get(3).rows()).extracting(row -> row.get("name"))
+                .containsExactly("a;b", "c", "d!", "e!");
+
+        assertThatThrownBy(() -> simpleDb.runAll(List.of(
+                "INSERT INTO script_test SET name = 'f'",
+                "INSERT INTO script_test SET nope = 'g'",
+                "INSERT INTO script_test SET name = 'h'")))
+                .isInstanceOfSatisfying(ScriptException.class, e -> assertThat(e.getStatementIndex()).isEqualTo(1));
+
+        simpleDb.run("DROP TABLE script_test");
+    }
+
+    record ArticleListItem(Long id, String title, Lazy<String> body) {
+    }
+
+    @Test
+    @DisplayName("project, Lazy 컬럼은 빼고 읽은 뒤 한 번에 다시 읽음")
+    public void t043() {
+        List<QueryEvent> events = new CopyOnWriteArrayList<>();
+        QueryListener listener = events::add;
+        simpleDb.addQueryListener(listener);
+        try {
+            List<ArticleListItem> items = simpleDb.genSql()
+                    .append("SELECT * FROM article")
+                    .append("WHERE isBlind = ?", false)
+                    .append("ORDER BY id")
+                    .project(ArticleListItem.class)
+                    .selectRows(ArticleListItem.class);
+
+            assertThat(events.get(0).sql()).startsWith("SELECT `id`, `title` FROM article");
+            assertThat(items).extracting(ArticleListItem::title).containsExactly("제목1", "제목2", "제목3");
+            assertThat(items).noneMatch(item -> item.body().isLoaded());
+
+            assertThat(items.get(1).body().get()).isEqualTo("내용2");
+            assertThat(items).allMatch(item -> item.body().isLoaded());
+            assertThat(items).extracting(item -> item.body().get()).containsExactly("내용1", "내용2", "내용3");
+            // 목록 조회 1번 + 본문 조회 1번
+            assertThat(events).hasSize(2);
+
+            // project 없이 읽으면 컬럼 값을 그대로 들고 있음
+            ArticleListItem item = simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 4).selectRow(ArticleListItem.class);
+            assertThat(item.body().isLoaded()).isTrue();
+            assertThat(item.body().get()).isEqualTo("내용4");
+        } finally {
+            simpleDb.removeQueryListener(listener);
+        }
+    }
+
+    @Test
+    @DisplayName("ReadCoalescer, 동시에 들어온 같은 조회는 한 번만 실행")
+    public void t044() throws Exception {
+        ReadCoalescer readCoalescer = new ReadCoalescer();
+        simpleDb.setReadCoalescer(readCoalescer);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<String>> titles = IntStream.range(0, 8)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        return simpleDb.genSql()
+                                .append("SELECT title FROM article WHERE id = ? AND SLEEP(0.5) = 0", 1)
+                                .selectString();
+                    }, executor))
+                    .toList();
+            start.countDown();
+
+            assertThat(titles).allSatisfy(title -> assertThat(title.get()).isEqualTo("제목1"));
+            assertThat(readCoalescer.getExecutions() + readCoalescer.getCoalesced()).isEqualTo(8);
+            assertThat(readCoalescer.getCoalesced()).isPositive();
+            assertThat(readCoalescer.getInFlight()).isZero();
+
+            // 쓰기 후에는 새로 읽음
+            simpleDb.run("UPDATE article SET title = ? WHERE id = ?", "제목 new", 1);
+            assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString()).isEqualTo("제목 new");
+        } finally {
+            executor.shutdown();
+            simpleDb.setReadCoalescer(null);
+        }
+    }
+
+    @Test
+    @DisplayName("run, 결과셋을 돌려주는 문장도 실행")
+    public void t045() {
+        simpleDb.run("SHOW TABLES");
+        simpleDb.run("SELECT * FROM article WHERE id = ?", 1);
+        simpleDb.run("UPDATE article SET title = title WHERE id = ?", 1);
+
+        assertThat(simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong()).isPositive();
+    }
+
+    @Test
+    @DisplayName("긴 IN 목록, NOT IN 이나 OR 로 이어진 IN 은 나누지 않음")
+    public void t046() {
+        simpleDb.setMaxInListSize(2);
+        try {
+            Object[] ids = {1L, 2L, 3L, 4L, 5L};
+
+            List<Long> notInIds = simpleDb.genSql()
+                    .append("SELECT id FROM article")
+                    .appendIn("WHERE id NOT IN (?)", ids)
+                    .selectLongs();
+
+            List<Long> orIds = simpleDb.genSql()
+                    .append("SELECT id FROM article WHERE isBlind = ?", true)
+                    .appendIn("OR id IN (?)", ids)
+                    .selectLongs();
+
+            int deletedRows = simpleDb.genSql()
+                    .append("DELETE FROM article")
+                    .appendIn("WHERE id NOT IN (?)", ids)
+                    .delete();
+
+            long count = simpleDb.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+
+            assertThat(notInIds).containsExactly(6L);
+            assertThat(orIds).containsExactlyInAnyOrder(1L, 2L, 3L, 4L, 5L, 6L);
+            assertThat(deletedRows).isEqualTo(1);
+            assertThat(count).isEqualTo(5);
+        } finally {
+            simpleDb.setMaxInListSize(1_000);
+        }
+    }
+
+    @Test
+    @DisplayName("트랜잭션 run, 결과셋을 돌려주는 문장도 실행")
+    public void t047() {
+        Transaction tx = simpleDb.beginTransaction();
+        try {
+            tx.run("SHOW TABLES");
+            tx.run("SELECT * FROM article WHERE id = ? FOR UPDATE", 1);
+            tx.run("UPDATE article SET title = ? WHERE id = ?", "수정", 1);
+
+            assertThat(tx.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString()).isEqualTo("수정");
+        } finally {
+            tx.rollback();
+        }
+
+        assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 1).selectString()).isEqualTo("제목1");
+    }
+
+    @Test
+    @DisplayName("중첩 트랜잭션, savepoint 해제가 실패해도 바깥 트랜잭션은 열려 있고 롤백하면 커넥션을 반납")
+    public void t048() {
+        int activeConnections = simpleDb.getPool().getActiveConnections();
+
+        simpleDb.startTransaction();
+        simpleDb.run("UPDATE article SET title = ? WHERE id = ?", "수정", 1);
+        simpleDb.startTransaction();
+        // 서버에서 트랜잭션을 끝내서 savepoint 를 없앰 → 안쪽 commit 의 releaseSavepoint 가 실패
+        simpleDb.run("COMMIT");
+
+        assertThatThrownBy(simpleDb::commit).isInstanceOf(RuntimeException.class);
+
+        // 바깥 트랜잭션은 그대로 현재 스레드에 걸려 있음
+        simpleDb.run("UPDATE article SET title = ? WHERE id = ?", "수정2", 2);
+        simpleDb.rollback();
+
+        assertThatThrownBy(simpleDb::rollback).isInstanceOf(IllegalStateException.class);
+        assertThat(simpleDb.getPool().getActiveConnections()).isEqualTo(activeConnections);
+        assertThat(simpleDb.genSql().append("SELECT title FROM article WHERE id = ?", 2).selectString()).isEqualTo("제목2");
+    }
+
+    @Test
+    @DisplayName("엔티티 캐시, 같은 테이블의 클래스는 id 컬럼이 같아야 하고 쓰기는 모든 클래스의 그 id 를 무효화")
+    public void t049() {
+        EntityCache entityCache = new EntityCache()
+                .register(Article.class, "article")
+                .register(ArticleSummary.class, "article");
+
+        assertThatThrownBy(() -> entityCache.register(ArticleListItem.class, "article", "title"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        simpleDb.setEntityCache(entityCache);
+        try {
+            simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(Article.class);
+            simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(ArticleSummary.class);
+            simpleDb.genSql().append("UPDATE article SET title = ? WHERE id = ?", "새 제목", 1).update();
+
+            assertThat(entityCache.getInvalidations()).isEqualTo(2);
+            assertThat(simpleDb.genSql().append("SELECT * FROM article WHERE id = ?", 1).selectRow(ArticleSummary.class).title())
+                    .isEqualTo("새 제목");
+        } finally {
+            simpleDb.setEntityCache(null);
+        }
+    }
+
+    @Test
+    @DisplayName("커넥션 풀, 닫으면 커넥션을 기다리던 대여자는 시간 초과를 기다리지 않고 바로 실패")
+    public void t050() throws Exception {
+        try (SimpleDb db = new SimpleDb("localhost", "root", "root123414", "simpleDb__test")) {
+            ConnectionPool pool = db.getPool();
+            pool.setMaxSize(1);
+            pool.setBorrowTimeoutMillis(30_000);
+
+            // 하나뿐인 커넥션을 트랜잭션이 잡고 있음
+            db.startTransaction();
+            db.genSql().append("SELECT COUNT(*) FROM article").selectLong();
+            CompletableFuture<Long> waiter = CompletableFuture.supplyAsync(() ->
+                    db.genSql().append("SELECT COUNT(*) FROM article").selectLong());
+            while (pool.getWaitingBorrowers() == 0) Thread.sleep(10);
+
+            pool.close();
+
+            assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                    .hasMessageContaining("커넥션 풀이 이미 닫혔습니다.");
+            db.rollback();
+            assertThat(pool.getTotalConnections()).isEqualTo(0);
+        }
+    }
+
     @AfterAll
     public static void afterAll() {
-        simpleDb.closeConnection();
+        simpleDb.close();
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package com.back.simpleDb;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SqlBuilderTest {
@@ -44,5 +46,85 @@ public class SqlBuilderTest {
             assertThat(e.getMessage()).isEqualTo("IN 파라미터가 비어있습니다.");
         }
     }
-}
 
+    @Test
+    void t5() {
+        SqlBuilder builder = new SqlBuilder().bucketInLists(1000);
+        builder.append("SELECT * FROM article")
+               .appendIn("WHERE id IN (?)", 1, 2, 3)
+               .append("AND isBlind = ?", false);
+
+        assertThat(builder.getSql()).isEqualTo("SELECT * FROM article WHERE id IN (?, ?, ?, ?) AND isBlind = ?");
+        assertThat(builder.getParams()).containsExactly(1, 2, 3, 3, false);
+    }
+
+    @Test
+    void t6() {
+        SqlBuilder builder = new SqlBuilder().bucketInLists(1000);
+        builder.append("INSERT INTO article (title, body)")
+               .appendIn("VALUES (?)", "제목", "내용");
+
+        assertThat(builder.getSql()).isEqualTo("INSERT INTO article (title, body) VALUES (?, ?)");
+        assertThat(builder.getParams()).containsExactly("제목", "내용");
+    }
+
+    @Test
+    void t7() {
+        SqlBuilder builder = new SqlBuilder().bucketInLists(4);
+        builder.append("SELECT * FROM article WHERE isBlind = ?", false)
+               .appendIn("AND id IN (?)", 1, 2, 3, 4, 5, 6);
+
+        List<SqlBuilder> chunks = builder.splitInList(4);
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getSql()).isEqualTo("SELECT * FROM article WHERE isBlind = ? AND id IN (?, ?, ?, ?)");
+        assertThat(chunks.get(0).getParams()).containsExactly(false, 1, 2, 3, 4);
+        assertThat(chunks.get(1).getSql()).isEqualTo("SELECT * FROM article WHERE isBlind = ? AND id IN (?, ?)");
+        assertThat(chunks.get(1).getParams()).containsExactly(false, 5, 6);
+    }
+
+    @Test
+    void t8() {
+        SqlBuilder builder = new SqlBuilder().bucketInLists(4);
+        builder.append("SELECT * FROM article")
+               .appendIn("WHERE id IN (?)", 1, 2, 3, 4, 5, 6);
+
+        assertThat(builder.replaceSelectAll("`id`, `title`")).isTrue();
+        List<SqlBuilder> chunks = builder.splitInList(4);
+
+        assertThat(builder.getSql()).isEqualTo("SELECT `id`, `title` FROM article WHERE id IN (?, ?, ?, ?, ?, ?)");
+        assertThat(chunks.get(1).getSql()).isEqualTo("SELECT `id`, `title` FROM article WHERE id IN (?, ?)");
+        assertThat(chunks.get(1).getParams()).containsExactly(5, 6);
+        assertThat(new SqlBuilder().append("SELECT id FROM article").replaceSelectAll("`title`")).isFalse();
+    }
+
+    @Test
+    void t9() {
+        // NOT IN 목록은 개수를 맞추지도 나누지도 않음
+        SqlBuilder builder = new SqlBuilder().bucketInLists(4);
+        builder.append("DELETE FROM article")
+               .appendIn("WHERE id NOT IN (?)", 1, 2, 3, 4, 5, 6);
+        SqlBuilder small = new SqlBuilder().bucketInLists(4);
+        small.append("SELECT * FROM article")
+             .appendIn("WHERE id NOT IN (?)", 1, 2, 3);
+
+        assertThat(builder.splitInList(4)).isNull();
+        assertThat(small.getSql()).isEqualTo("SELECT * FROM article WHERE id NOT IN (?, ?, ?)");
+        assertThat(small.getParams()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void t10() {
+        // OR 로 이어진 IN 목록은 나누지 않음
+        SqlBuilder builder = new SqlBuilder().bucketInLists(4);
+        builder.append("SELECT * FROM article WHERE isBlind = ?", true)
+               .appendIn("OR id IN (?)", 1, 2, 3, 4, 5, 6);
+        SqlBuilder nested = new SqlBuilder().bucketInLists(4);
+        nested.append("UPDATE article SET title = ? WHERE isBlind = ? AND (title = ?", "수정", false, "제목1")
+              .appendIn("OR id IN (?)", 1, 2, 3, 4, 5, 6)
+              .append(")");
+
+        assertThat(builder.splitInList(4)).isNull();
+        assertThat(nested.splitInList(4)).isNull();
+    }
+}
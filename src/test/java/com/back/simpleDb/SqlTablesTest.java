@@ -0,0 +1,58 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SqlTablesTest {
+    @Test
+    void t1() {
+        // 쉼표로 나열한 테이블도 모두 읽는 테이블
+        assertThat(SqlTables.readTables("SELECT * FROM article a, comment c WHERE a.id = c.articleId ORDER BY a.id"))
+                .containsExactly("article", "comment");
+        assertThat(SqlTables.readTables("SELECT * FROM `db`.`article` AS a, `member` LIMIT 10"))
+                .containsExactly("article", "member");
+    }
+
+    @Test
+    void t2() {
+        assertThat(SqlTables.readTables("""
+                SELECT * FROM article a
+                LEFT OUTER JOIN comment c ON a.id = c.articleId
+                NATURAL JOIN tag
+                JOIN member m USING (memberId)
+                WHERE a.id IN (SELECT articleId FROM likes, member)
+                """))
+                .containsExactly("article", "comment", "tag", "member", "likes");
+        // 서브쿼리(파생 테이블)는 그 안의 FROM 에서 찾음
+        assertThat(SqlTables.readTables("SELECT * FROM (SELECT id FROM article) x, member m"))
+                .containsExactlyInAnyOrder("article", "member");
+    }
+
+    @Test
+    void t3() {
+        // 문자열 리터럴 안의 FROM, 쉼표는 무시
+        assertThat(SqlTables.readTables("SELECT 'a, FROM b' AS title FROM `order` o"))
+                .containsExactly("order");
+        // 알아보지 못한 FROM 목록
+        assertThat(SqlTables.readTables("SELECT * FROM JSON_TABLE(?, '$[*]' COLUMNS (id INT PATH '$')) j"))
+                .containsExactly(SqlTables.UNKNOWN_TABLES);
+        assertThat(SqlTables.readTables("SELECT 1")).isEmpty();
+    }
+
+    @Test
+    void t4() {
+        // 나눠서 실행해도 되는 IN 목록은 WHERE 의 맨 바깥 AND 조건 "컬럼 IN (...)" 뿐
+        assertThat(isTopLevelIn("SELECT * FROM article WHERE isBlind = ? AND id IN (?, ?)")).isTrue();
+        assertThat(isTopLevelIn("SELECT * FROM article WHERE (title = 'a OR b' OR isBlind = ?) AND a.id IN (?, ?) AND id BETWEEN 1 AND 9")).isTrue();
+        assertThat(isTopLevelIn("DELETE FROM article WHERE id NOT IN (?, ?)")).isFalse();
+        assertThat(isTopLevelIn("DELETE FROM article WHERE NOT id IN (?, ?)")).isFalse();
+        assertThat(isTopLevelIn("SELECT * FROM article WHERE isBlind = ? OR id IN (?, ?)")).isFalse();
+        assertThat(isTopLevelIn("SELECT * FROM article WHERE isBlind = ? AND (title = ? OR id IN (?, ?))")).isFalse();
+        assertThat(isTopLevelIn("SELECT * FROM article WHERE id IN (?, ?) = FALSE")).isFalse();
+    }
+
+    private static boolean isTopLevelIn(String sql) {
+        return SqlTables.isTopLevelInCondition(sql, sql.lastIndexOf("IN (") + 4);
+    }
+}
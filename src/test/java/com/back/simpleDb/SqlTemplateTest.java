@@ -0,0 +1,66 @@
+package com.back.simpleDb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlTemplateTest {
+    @Test
+    void t1() {
+        SqlTemplate template = SqlTemplate.of("SELECT * FROM article WHERE id = ? AND isBlind = ?");
+        SqlBuilder builder = template.bind(1, false);
+
+        assertThat(builder.getSql()).isSameAs(template.getSql());
+        assertThat(builder.getSql()).isEqualTo("SELECT * FROM article WHERE id = ? AND isBlind = ?");
+        assertThat(builder.getParams()).containsExactly(1, false);
+    }
+
+    @Test
+    void t2() {
+        SqlTemplate template = SqlTemplate.of("SELECT * FROM article WHERE title = :title OR body = :title AND id > :id");
+        SqlBuilder builder = template.bind(Map.of("title", "제목1", "id", 3));
+
+        assertThat(template.getParamNames()).containsExactly("title", "id");
+        assertThat(builder.getSql()).isEqualTo("SELECT * FROM article WHERE title = ? OR body = ? AND id > ?");
+        assertThat(builder.getParams()).containsExactly("제목1", "제목1", 3);
+    }
+
+    @Test
+    void t3() {
+        SqlTemplate template = SqlTemplate.of("SELECT * FROM article WHERE id IN (:ids) AND isBlind = :blind");
+        SqlBuilder builder = template.bind(List.of(1, 2, 3), false);
+
+        assertThat(builder.getSql()).isEqualTo("SELECT * FROM article WHERE id IN (?, ?, ?) AND isBlind = ?");
+        assertThat(builder.getParams()).containsExactly(1, 2, 3, false);
+    }
+
+    @Test
+    void t4() {
+        SqlTemplate template = SqlTemplate.of("SELECT ':no', `a?b`, @x := 1 FROM article WHERE title = 'it''s ?' AND id = :id");
+
+        assertThat(template.getParamNames()).containsExactly("id");
+        assertThat(template.getSql()).isEqualTo("SELECT ':no', `a?b`, @x := 1 FROM article WHERE title = 'it''s ?' AND id = ?");
+    }
+
+    @Test
+    void t5() {
+        SqlBuilder builder = SqlTemplate.of("SELECT * FROM article WHERE id = ?").bind(1)
+                .append("AND title = ?", "제목1");
+
+        assertThat(builder.getSql()).isEqualTo("SELECT * FROM article WHERE id = ? AND title = ?");
+        assertThat(builder.getParams()).containsExactly(1, "제목1");
+    }
+
+    @Test
+    void t6() {
+        assertThat(SqlTemplate.of("SELECT * FROM article WHERE id = ?")).isSameAs(SqlTemplate.of("SELECT * FROM article WHERE id = ?"));
+        assertThatThrownBy(() -> SqlTemplate.of("SELECT * FROM article WHERE id = ? AND title = :title"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SqlTemplate.of("SELECT * FROM article WHERE id = ?").bind(1, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}